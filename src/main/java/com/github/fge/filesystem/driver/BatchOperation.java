@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package com.github.fge.filesystem.driver;
+
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+import java.util.Set;
+
+
+/**
+ * BatchOperation.
+ * <p>
+ * An operation for {@link ExtendedFileSystemDriver#batch(java.util.List, int)}.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public final class BatchOperation {
+
+    /** */
+    public enum Kind {
+        DELETE,
+        MOVE,
+        COPY
+    }
+
+    /** */
+    private final Kind kind;
+
+    /** */
+    private final Path source;
+
+    /** null for {@link Kind#DELETE} */
+    private final Path target;
+
+    /** */
+    private final Set<CopyOption> options;
+
+    /** */
+    private BatchOperation(Kind kind, Path source, Path target, CopyOption... options) {
+        this.kind = kind;
+        this.source = source;
+        this.target = target;
+        this.options = Set.of(options);
+    }
+
+    /** */
+    public static BatchOperation delete(Path path) {
+        return new BatchOperation(Kind.DELETE, path, null);
+    }
+
+    /** */
+    public static BatchOperation move(Path source, Path target, CopyOption... options) {
+        return new BatchOperation(Kind.MOVE, source, target, options);
+    }
+
+    /** */
+    public static BatchOperation copy(Path source, Path target, CopyOption... options) {
+        return new BatchOperation(Kind.COPY, source, target, options);
+    }
+
+    /** */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** */
+    public Path getSource() {
+        return source;
+    }
+
+    /** null for {@link Kind#DELETE} */
+    public Path getTarget() {
+        return target;
+    }
+
+    /** */
+    public Set<CopyOption> getOptions() {
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ": " + source + (target != null ? " -> " + target : "");
+    }
+}
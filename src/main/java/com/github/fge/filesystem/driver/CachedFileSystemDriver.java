@@ -7,26 +7,84 @@
 package com.github.fge.filesystem.driver;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
 import java.nio.file.CopyOption;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ObjLongConsumer;
 
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
 import vavi.nio.file.Cache;
+import vavi.nio.file.CacheBackend;
+import vavi.nio.file.CacheLoadEvent;
+import vavi.nio.file.CacheMonitor;
+import vavi.nio.file.Cache.Freshness;
+import vavi.nio.file.Journal;
+import vavi.nio.file.LruEvictionPolicy;
+import vavi.nio.file.Pages;
+import vavi.nio.file.SingleFlight;
 import vavi.nio.file.Util;
 
+import static java.lang.System.getLogger;
+
 
 /**
  * CachedFileSystemDriver.
  * <p>
  * Retrieved filenames and directories are cached.
  * </p>
+ * <p>
+ * loads from the remote are recorded as {@link CacheLoadEvent} JFR events.
+ * </p>
+ * env
+ * <li>"cacheBackend" ({@link #ENV_CACHE_BACKEND}) ... a {@link CacheBackend} instance or its class name</li>
+ * <li>"cacheMaxEntries" ({@link #ENV_CACHE_MAX_ENTRIES}) ... max number of cached entries</li>
+ * <li>"cacheMaxWeight" ({@link #ENV_CACHE_MAX_WEIGHT}) ... max total size in bytes of cached entries</li>
+ * <li>"cacheSoftTtl" ({@link #ENV_CACHE_SOFT_TTL}) ... millis, after this a cached value is returned and refreshed in background</li>
+ * <li>"cacheHardTtl" ({@link #ENV_CACHE_HARD_TTL}) ... millis, after this a cached value is reloaded before returning</li>
+ * <li>"cacheNegativeTtl" ({@link #ENV_CACHE_NEGATIVE_TTL}) ... millis, a path not found is remembered for this</li>
+ * <li>"cacheNegativeMaxEntries" ({@link #ENV_CACHE_NEGATIVE_MAX_ENTRIES}) ... max number of paths not found remembered</li>
+ * <li>"cacheMonitor" ({@link #ENV_CACHE_MONITOR}) ... exports cache statistics as a JMX MBean</li>
+ * <li>"cacheSpeculativeDepth" ({@link #ENV_CACHE_SPECULATIVE_DEPTH}) ... levels of sub folders listed in background after a folder is listed</li>
+ * <li>"cacheSpeculativeFanOut" ({@link #ENV_CACHE_SPECULATIVE_FAN_OUT}) ... max sub folders listed in background for a folder</li>
+ * <li>"cacheSpeculativeBudget" ({@link #ENV_CACHE_SPECULATIVE_BUDGET}) ... max background listings queued</li>
+ * <li>"cacheSnapshot" ({@link #ENV_CACHE_SNAPSHOT}) ... a local file, metadata are loaded from and saved to it, needs {@link #getCacheCodec()}</li>
+ * <li>"cacheSnapshotInterval" ({@link #ENV_CACHE_SNAPSHOT_INTERVAL}) ... millis, metadata are saved periodically</li>
+ * <li>"cacheWriteBehind" ({@link #ENV_CACHE_WRITE_BEHIND}) ... a local journal file, creating folders, renaming and deleting
+ *     return after updating the cache and are applied to the remote in background, needs {@link #createPendingEntry(Object, Path)}</li>
  *
  * @param <T> different type of file system driver's file object
  * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
@@ -34,11 +92,616 @@ import vavi.nio.file.Util;
  */
 public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver<T> {
 
+    private static final Logger logger = getLogger(CachedFileSystemDriver.class.getName());
+
+    /** env key for a storage of the cache, a {@link CacheBackend} or its class name, {@link vavi.nio.file.PathTrie} if not specified */
+    public static final String ENV_CACHE_BACKEND = "cacheBackend";
+
+    /** env key for max number of cached entries, unbounded if not specified */
+    public static final String ENV_CACHE_MAX_ENTRIES = "cacheMaxEntries";
+
+    /** env key for max total size in bytes of cached entries, unbounded if not specified */
+    public static final String ENV_CACHE_MAX_WEIGHT = "cacheMaxWeight";
+
+    /** env key for soft time to live in millis, never expires if not specified */
+    public static final String ENV_CACHE_SOFT_TTL = "cacheSoftTtl";
+
+    /** env key for hard time to live in millis, never expires if not specified */
+    public static final String ENV_CACHE_HARD_TTL = "cacheHardTtl";
+
+    /** env key for time to live in millis of paths not found, not remembered if not specified */
+    public static final String ENV_CACHE_NEGATIVE_TTL = "cacheNegativeTtl";
+
+    /** env key for max number of paths not found remembered */
+    public static final String ENV_CACHE_NEGATIVE_MAX_ENTRIES = "cacheNegativeMaxEntries";
+
+    /** default for {@link #ENV_CACHE_NEGATIVE_MAX_ENTRIES} */
+    private static final int DEFAULT_NEGATIVE_MAX_ENTRIES = 10000;
+
+    /** env key for a local file (a {@link Path} or a string) of a metadata snapshot, not saved if not specified */
+    public static final String ENV_CACHE_SNAPSHOT = "cacheSnapshot";
+
+    /** env key for interval in millis of saving a snapshot, saved only at closing if not specified */
+    public static final String ENV_CACHE_SNAPSHOT_INTERVAL = "cacheSnapshotInterval";
+
+    /** env key for a local journal file (a {@link Path} or a string) for write-behind, mutations are applied synchronously if not specified */
+    public static final String ENV_CACHE_WRITE_BEHIND = "cacheWriteBehind";
+
+    /** env key for exporting cache statistics as a JMX MBean */
+    public static final String ENV_CACHE_MONITOR = "cacheMonitor";
+
+    /** env key for levels of sub folders listed in background after a directory stream, disabled if not specified */
+    public static final String ENV_CACHE_SPECULATIVE_DEPTH = "cacheSpeculativeDepth";
+
+    /** env key for max sub folders listed in background for a folder */
+    public static final String ENV_CACHE_SPECULATIVE_FAN_OUT = "cacheSpeculativeFanOut";
+
+    /** env key for max background listings queued, more are dropped */
+    public static final String ENV_CACHE_SPECULATIVE_BUDGET = "cacheSpeculativeBudget";
+
+    /** default for {@link #ENV_CACHE_SPECULATIVE_FAN_OUT} */
+    private static final int DEFAULT_SPECULATIVE_FAN_OUT = 16;
+
+    /** default for {@link #ENV_CACHE_SPECULATIVE_BUDGET} */
+    private static final int DEFAULT_SPECULATIVE_BUDGET = 256;
+
+    /** number of threads for speculative listings */
+    private static final int SPECULATOR_THREADS = 2;
+
+    /** heap usage ratio regarded as memory pressure */
+    private static final double HEAP_PRESSURE = 0.9;
+
+    /** number of threads for refreshing stale values */
+    private static final int REFRESHER_THREADS = 2;
+
+    /** for refreshing stale values in background, null when soft ttl is not set */
+    private ExecutorService refresher;
+
+    /** paths of entries being refreshed, for refreshing only once at a time */
+    private final Set<Path> refreshingFiles = ConcurrentHashMap.newKeySet();
+
+    /** paths of children lists being refreshed, for refreshing only once at a time */
+    private final Set<Path> refreshingFolders = ConcurrentHashMap.newKeySet();
+
+    /** coalesces concurrent loads of the same entry */
+    private final SingleFlight<Path, T> entryLoads = new SingleFlight<>();
+
+    /** coalesces concurrent listings of the same folder */
+    private final SingleFlight<Path, List<Map.Entry<Path, T>>> folderLoads = new SingleFlight<>();
+
+    /** a local file for a snapshot, null when not specified */
+    private Path snapshot;
+
+    /** for loading a snapshot only once */
+    private final AtomicBoolean snapshotLoaded = new AtomicBoolean();
+
+    /** for saving a snapshot periodically, null when an interval is not set */
+    private ScheduledExecutorService snapshotSaver;
+
+    /** null when not exported */
+    private CacheMonitor monitor;
+
+    /** for listing sub folders in background, null when disabled */
+    private ThreadPoolExecutor speculator;
+
+    /** */
+    private int speculativeDepth;
+
+    /** */
+    private int speculativeFanOut;
+
+    /** paths of folders queued or being listed speculatively */
+    private final Set<Path> speculating = ConcurrentHashMap.newKeySet();
+
+    /** for write-behind, null when disabled */
+    private volatile Journal journal;
+
+    /** placeholder -> the entry replayed, null while not replayed yet, compared by identity */
+    private final Map<T, T> placeholders = new IdentityHashMap<>();
+
     /** */
     protected CachedFileSystemDriver(FileStore fileStore, FileSystemFactoryProvider factoryProvider) {
         super(fileStore, factoryProvider);
     }
 
+    @Override
+    protected void setEnv(Map<String, ?> env) throws IOException {
+        super.setEnv(env);
+        Object backend = env.get(ENV_CACHE_BACKEND);
+        if (backend != null) {
+            cache.setBackend(toCacheBackend(backend));
+            logger.log(Level.DEBUG, "cache backend: " + backend);
+        }
+        long maxEntries = getLong(ENV_CACHE_MAX_ENTRIES, -1);
+        long maxWeight = getLong(ENV_CACHE_MAX_WEIGHT, -1);
+        if (maxEntries > 0 || maxWeight > 0) {
+            cache.setEvictionPolicy(new LruEvictionPolicy<>(maxEntries, maxWeight));
+            logger.log(Level.DEBUG, "cache is bounded: maxEntries: " + maxEntries + ", maxWeight: " + maxWeight);
+        }
+        long softTtl = getLong(ENV_CACHE_SOFT_TTL, -1);
+        long hardTtl = getLong(ENV_CACHE_HARD_TTL, -1);
+        if (softTtl > 0 || hardTtl > 0) {
+            cache.setExpiry(softTtl, hardTtl);
+            logger.log(Level.DEBUG, "cache expires: soft: " + softTtl + ", hard: " + hardTtl);
+        }
+        long negativeTtl = getLong(ENV_CACHE_NEGATIVE_TTL, -1);
+        if (negativeTtl > 0) {
+            int negativeMaxEntries = (int) getLong(ENV_CACHE_NEGATIVE_MAX_ENTRIES, DEFAULT_NEGATIVE_MAX_ENTRIES);
+            cache.setNegativeCache(negativeMaxEntries, negativeTtl);
+            logger.log(Level.DEBUG, "cache remembers misses: ttl: " + negativeTtl + ", maxEntries: " + negativeMaxEntries);
+        }
+        Object snapshot = env.get(ENV_CACHE_SNAPSHOT);
+        Cache.Codec<T> codec = getCacheCodec();
+        if (snapshot != null && codec != null) {
+            this.snapshot = snapshot instanceof Path ? (Path) snapshot : Paths.get(snapshot.toString());
+            long interval = getLong(ENV_CACHE_SNAPSHOT_INTERVAL, -1);
+            if (interval > 0 && snapshotSaver == null) {
+                snapshotSaver = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "cache-snapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                snapshotSaver.scheduleWithFixedDelay(this::saveSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+            }
+            logger.log(Level.DEBUG, "cache snapshot: " + this.snapshot + ", interval: " + interval);
+        } else if (snapshot != null) {
+            logger.log(Level.WARNING, "cache snapshot is ignored, no codec for: " + getClass().getName());
+        }
+        Object writeBehind = env.get(ENV_CACHE_WRITE_BEHIND);
+        if (writeBehind != null && journal == null) {
+            journal = new Journal(writeBehind instanceof Path ? (Path) writeBehind : Paths.get(writeBehind.toString()), new JournalReplayer());
+            logger.log(Level.DEBUG, "cache writes behind: " + writeBehind);
+        }
+        if (isEnabled(ENV_CACHE_MONITOR) && monitor == null) {
+            monitor = new CacheMonitor(cache, this::getFileCacheBytes);
+            monitor.register(getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this)));
+        }
+        speculativeDepth = (int) getLong(ENV_CACHE_SPECULATIVE_DEPTH, 0);
+        if (speculativeDepth > 0 && speculator == null) {
+            speculativeFanOut = (int) getLong(ENV_CACHE_SPECULATIVE_FAN_OUT, DEFAULT_SPECULATIVE_FAN_OUT);
+            int budget = (int) getLong(ENV_CACHE_SPECULATIVE_BUDGET, DEFAULT_SPECULATIVE_BUDGET);
+            speculator = new ThreadPoolExecutor(SPECULATOR_THREADS, SPECULATOR_THREADS, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(budget), r -> {
+                Thread thread = new Thread(r, "cache-speculator");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            logger.log(Level.DEBUG, "cache speculates: depth: " + speculativeDepth + ", fanOut: " + speculativeFanOut + ", budget: " + budget);
+        }
+        if ((softTtl > 0 || this.snapshot != null) && refresher == null) {
+            refresher = Executors.newFixedThreadPool(REFRESHER_THREADS, r -> {
+                Thread thread = new Thread(r, "cache-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** @param backend a {@link CacheBackend} or its class name */
+    private static CacheBackend toCacheBackend(Object backend) {
+        if (backend instanceof CacheBackend) {
+            return (CacheBackend) backend;
+        }
+        try {
+            return (CacheBackend) Class.forName(backend.toString()).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("bad " + ENV_CACHE_BACKEND + ": " + backend, e);
+        }
+    }
+
+    /** for {@link #ENV_CACHE_MONITOR}, @return bytes of downloaded files, -1 when no file cache */
+    protected long getFileCacheBytes() {
+        return -1;
+    }
+
+    /**
+     * Loads a value from the remote with recording statistics and a JFR event.
+     *
+     * @param kind see {@link CacheLoadEvent#kind}
+     */
+    private <V> V loadRemote(String kind, Path path, SingleFlight.Loader<V> loader) throws IOException {
+        CacheLoadEvent event = new CacheLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            V value = loader.load();
+            success = true;
+            return value;
+        } finally {
+            cache.getStats().recordLoad(System.nanoTime() - start, success);
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.path = path.toString();
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Encodes entries for {@link #ENV_CACHE_SNAPSHOT}, override this to enable snapshots.
+     *
+     * @return null means snapshots are not supported
+     */
+    protected Cache.Codec<T> getCacheCodec() {
+        return null;
+    }
+
+    /**
+     * Loads a snapshot once, loaded values are revalidated lazily.
+     *
+     * @param path the file system for paths in the snapshot is taken from this
+     */
+    private void loadSnapshot(Path path) {
+        if (snapshot == null || !snapshotLoaded.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (Files.exists(snapshot)) {
+                cache.load(snapshot, getCacheCodec(), path.getFileSystem());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "snapshot is not loaded: " + snapshot, e); // values loaded partially are revalidated
+        }
+    }
+
+    /** saves a snapshot, failures are only logged */
+    private void saveSnapshot() {
+        if (!snapshotLoaded.get()) { // nothing new to save
+            return;
+        }
+        try {
+            cache.save(snapshot, getCacheCodec());
+            logger.log(Level.DEBUG, "snapshot saved: " + snapshot);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "snapshot is not saved: " + snapshot, e);
+        }
+    }
+
+    /**
+     * Makes an entry standing for the path until a mutation is applied to the remote, override this to enable
+     * {@link #ENV_CACHE_WRITE_BEHIND}. the entry is used for attributes only, it is never given to remote operations.
+     *
+     * @param sourceEntry the entry renamed, null for a new folder
+     * @param path the new folder or the target of renaming
+     * @return null means write-behind is not supported, the mutation is applied synchronously
+     */
+    protected T createPendingEntry(T sourceEntry, Path path) {
+        return null;
+    }
+
+    /** Opens the journal once, records left by a crash are replayed, write-behind is disabled when it fails. */
+    private void openJournal(Path path) {
+        Journal journal = this.journal;
+        if (journal == null || journal.isOpen()) {
+            return;
+        }
+        try {
+            journal.open(path.getFileSystem());
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "write-behind is disabled: " + e);
+            this.journal = null;
+        }
+    }
+
+    /** @return null when write-behind is disabled */
+    private Journal writeBehind() {
+        Journal journal = this.journal;
+        return journal != null && journal.isOpen() ? journal : null;
+    }
+
+    /** the entry is a placeholder not replayed yet */
+    private boolean isPendingEntry(T entry) {
+        synchronized (placeholders) {
+            return entry != null && placeholders.containsKey(entry) && placeholders.get(entry) == null;
+        }
+    }
+
+    /** Waits until mutations related to the path are applied to the remote, before loading it from the remote. */
+    private void awaitJournal(Path path) throws IOException {
+        Journal journal = this.journal;
+        if (journal != null && journal.isOpen()) {
+            journal.await(path);
+        }
+    }
+
+    /** Waits until all mutations written behind are applied to the remote. */
+    public void flushWriteBehind() throws IOException {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.flush();
+        }
+    }
+
+    /** entries when a journal record is appended, they might be placeholders */
+    private static final class Pending<T> {
+        /** the entry deleted or renamed, null for a new folder */
+        final T entry;
+        /** the parent of a new folder or the target renamed */
+        final T parentEntry;
+        /** cached until replayed, null for deleting */
+        final T placeholder;
+
+        Pending(T entry, T parentEntry, T placeholder) {
+            this.entry = entry;
+            this.parentEntry = parentEntry;
+            this.placeholder = placeholder;
+        }
+    }
+
+    /** applies journal records to the remote and replaces placeholders in the cache */
+    private class JournalReplayer implements Journal.Replayer {
+
+        @Override
+        public void replay(Journal.Record record) throws IOException {
+            @SuppressWarnings("unchecked")
+            Pending<T> pending = (Pending<T>) record.getAttachment();
+            if (pending == null) {
+                recover(record);
+                return;
+            }
+            Path source = record.getSource();
+            Path target = record.getTarget();
+            switch (record.getKind()) {
+            case CREATE -> settle(pending.placeholder, source, createDirectoryEntry(replayed(pending.parentEntry), source));
+            case DELETE -> removeEntry(replayed(pending.entry), source);
+            case RENAME -> {
+                T newEntry = renameEntry(replayed(pending.entry), replayed(pending.parentEntry), source, target);
+                settle(pending.placeholder, target, newEntry);
+                if (isFolder(newEntry)) { // descendants are reloaded with the new parent
+                    List<Path> children = cache.getFolder(target);
+                    if (children != null) {
+                        children.forEach(cache::invalidateTree);
+                    }
+                    cache.invalidateFolder(target);
+                }
+            }
+            }
+        }
+
+        /** a record left by a crash might be applied already */
+        private void recover(Journal.Record record) throws IOException {
+            Path source = record.getSource();
+            Path target = record.getTarget();
+            boolean exists = cache.existsEntry(source);
+            switch (record.getKind()) {
+            case CREATE -> {
+                if (!exists) {
+                    cache.addEntry(source, createDirectoryEntry(cache.getEntry(source.getParent()), source));
+                }
+            }
+            case DELETE -> {
+                if (exists) {
+                    removeEntry(cache.getEntry(source), source);
+                    cache.removeEntry(source);
+                }
+            }
+            case RENAME -> {
+                if (exists) {
+                    T newEntry = renameEntry(cache.getEntry(source), cache.getEntry(target.getParent()), source, target);
+                    cache.moveEntry(source, target, newEntry);
+                }
+            }
+            }
+        }
+
+        /** @return the entry replayed for a placeholder */
+        private T replayed(T entry) throws IOException {
+            synchronized (placeholders) {
+                if (!placeholders.containsKey(entry)) {
+                    return entry;
+                }
+                T replayed = placeholders.get(entry);
+                if (replayed == null) {
+                    throw new IOException("not replayed: " + entry);
+                }
+                return replayed;
+            }
+        }
+
+        /** the placeholder cached at the path is replaced */
+        private void settle(T placeholder, Path path, T newEntry) {
+            synchronized (placeholders) {
+                placeholders.put(placeholder, newEntry);
+                if (cache.getFile(path) == placeholder) {
+                    cache.putFile(path, newEntry);
+                }
+            }
+        }
+
+        /** paths are reloaded from the remote */
+        @Override
+        public void failed(Journal.Record record, IOException e) {
+            for (Path path : new Path[] {record.getSource(), record.getTarget()}) {
+                if (path != null) {
+                    cache.invalidateTree(path);
+                    cache.invalidateFolder(path.getParent());
+                }
+            }
+        }
+
+        /** no placeholder is cached after all records are replayed */
+        @Override
+        public void drained() {
+            synchronized (placeholders) {
+                placeholders.clear();
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cache for a change notified by the remote, values invalidated are reloaded when they are queried.
+     *
+     * @param kind {@link StandardWatchEventKinds#OVERFLOW} or unknown kinds invalidate all under the root
+     */
+    public void invalidateCache(Path path, WatchEvent.Kind<?> kind) {
+        Path parent = path.toAbsolutePath().getParent();
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && parent != null) {
+            cache.invalidateTree(path); // might be remembered as missing
+            cache.invalidateFolder(parent);
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE && parent != null) {
+            cache.removeEntry(path);
+            cache.invalidateTree(path);
+        } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+            cache.invalidateEntry(path);
+            cache.invalidateFolder(path);
+        } else {
+            cache.invalidateTree(path.toAbsolutePath().getRoot());
+        }
+        logger.log(Level.DEBUG, "invalidated: " + path + ", " + kind);
+    }
+
+    /**
+     * Makes a listener for {@link vavi.nio.file.watch.webhook.WebHookBaseWatchService#addNotificationListener(BiConsumer)}
+     * invalidating the cache.
+     * an id notified is resolved by {@link Cache#getEntryByKey(Object)} when {@link Cache#setKeyExtractor} is set,
+     * a string starting with the separator is regarded as a path.
+     * for an id not cached, e.g. a file just created, the children list of the parent given by {@link #resolveParent(String)}
+     * is invalidated, when the parent is not resolved all children lists are expired.
+     *
+     * @param fs paths are resolved by this
+     */
+    public BiConsumer<String, WatchEvent.Kind<?>> getCacheInvalidator(FileSystem fs) {
+        return (idOrPath, kind) -> {
+            Path path = null;
+            try {
+                path = cache.getEntryByKey(idOrPath);
+            } catch (IllegalStateException | NoSuchElementException e) {
+                if (idOrPath.startsWith(fs.getSeparator())) {
+                    path = fs.getPath(idOrPath);
+                }
+            }
+            if (path != null) {
+                invalidateCache(path, kind);
+            } else if (kind == StandardWatchEventKinds.OVERFLOW) {
+                fs.getRootDirectories().forEach(root -> invalidateCache(root, kind));
+            } else {
+                Path parent = null;
+                try {
+                    Object parentKey = resolveParent(idOrPath);
+                    if (parentKey != null) {
+                        parent = cache.getEntryByKey(parentKey);
+                    }
+                } catch (NoSuchElementException e) {
+                    logger.log(Level.DEBUG, "parent not cached: " + idOrPath + ", " + kind);
+                    return; // a folder not cached has no children list
+                } catch (IOException | IllegalStateException e) {
+                    logger.log(Level.DEBUG, "resolveParent: " + idOrPath + ", " + e);
+                }
+                if (parent != null) {
+                    cache.clearMissing(parent);
+                    cache.invalidateFolder(parent);
+                    logger.log(Level.DEBUG, "invalidated parent: " + parent + ", " + idOrPath + ", " + kind);
+                } else {
+                    cache.expireFolders();
+                    cache.clearMissing();
+                    logger.log(Level.DEBUG, "not cached, all folders expired: " + idOrPath + ", " + kind);
+                }
+            }
+        };
+    }
+
+    /**
+     * implement driver depends code if your api tells the parent of an entry by its id,
+     * it's used for notifications of ids not cached.
+     *
+     * @return the key of the parent made by the key extractor of {@link Cache#setKeyExtractor}, null when unknown
+     * @see #getCacheInvalidator(FileSystem)
+     */
+    protected Object resolveParent(String id) throws IOException {
+        return null;
+    }
+
+    /** the cache evicts or the heap is nearly full */
+    private boolean underPressure(long evictions) {
+        if (cache.getStats().getEvictionCount() > evictions) {
+            return true;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() > runtime.maxMemory() * HEAP_PRESSURE;
+    }
+
+    /**
+     * Lists sub folders not cached yet in background, queued listings are dropped under memory pressure.
+     *
+     * @param children children of a folder just listed
+     * @param depth levels to list
+     */
+    private void speculate(List<Path> children, int depth) {
+        long evictions = cache.getStats().getEvictionCount();
+        if (speculator == null || depth < 1 || underPressure(evictions)) {
+            return;
+        }
+        int queued = 0;
+        for (Path child : children) {
+            if (queued >= speculativeFanOut) {
+                break;
+            }
+            try {
+                T entry = cache.peekFile(child);
+                if (entry == null || !isFolder(entry) || cache.containsFolder(child)) {
+                    continue;
+                }
+            } catch (IOException e) {
+                continue;
+            }
+            Path key = child.toAbsolutePath();
+            if (!speculating.add(key)) {
+                continue;
+            }
+            try {
+                speculator.execute(() -> {
+                    try {
+                        if (underPressure(evictions)) {
+                            logger.log(Level.DEBUG, "speculation cancelled under pressure, queued: " + speculator.getQueue().size());
+                            speculator.getQueue().clear();
+                            speculating.clear();
+                            return;
+                        }
+                        speculate(getDirectoryEntries(child, true), depth - 1);
+                    } catch (IOException e) {
+                        logger.log(Level.DEBUG, "speculation failed: " + child + ", " + e);
+                    } finally {
+                        speculating.remove(key);
+                    }
+                });
+                queued++;
+            } catch (RejectedExecutionException e) { // over the budget or closed
+                speculating.remove(key);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Refreshes a stale value in background, the task for the same path runs only once at a time.
+     *
+     * @param refreshing {@link #refreshingFiles} or {@link #refreshingFolders}
+     */
+    private void refreshLater(Set<Path> refreshing, Path path, Callable<?> task) {
+        if (refresher == null || !refreshing.add(path.toAbsolutePath())) {
+            return;
+        }
+        try {
+            refresher.submit(() -> {
+                try {
+                    task.call();
+                    logger.log(Level.DEBUG, "refreshed: " + path);
+                } catch (NoSuchFileException e) {
+                    logger.log(Level.DEBUG, "refreshed, gone: " + path);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "refresh failed: " + path, e);
+                } finally {
+                    refreshing.remove(path.toAbsolutePath());
+                }
+            });
+        } catch (RuntimeException e) { // rejected after close
+            refreshing.remove(path.toAbsolutePath());
+        }
+    }
+
     /** for async method in subclass */
     protected void updateEntry(Path path, T newEntry) {
         cache.addEntry(path, newEntry);
@@ -55,37 +718,126 @@ public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver
      */
     protected abstract T getRootEntry(Path root) throws IOException;
 
+    /** a placeholder written behind is not returned, this waits until it is replayed */
     @Override
     protected T getEntry(Path path) throws IOException {
-        return cache.getEntry(path);
+        T entry = cache.getEntry(path);
+        if (isPendingEntry(entry)) {
+            awaitJournal(path);
+            entry = cache.getEntry(path);
+        }
+        return entry;
     }
 
+    /** false after {@link #lookupChild(Object, Path)} threw {@link UnsupportedOperationException} */
+    private volatile boolean lookupChildSupported = true;
+
     /**
      * if your api has more effective api. override this method.
-     * this method traverses all siblings from root, it costs heavy.
+     * this method resolves only the last name in the parent,
+     * a cached children list of the parent is used first, then {@link #lookupChild(Object, Path)},
+     * then the parent is listed.
+     * an entry cached, i.e. expired or being refreshed, is always resolved by the remote.
      *
-     * @param parentEntry not used in this method, nullable
+     * @param parentEntry the parent of the path, nullable
      * @return null when not found
      * @see "cache#cacheEntry(Path)"
      */
     protected T getEntry(T parentEntry, Path path) throws IOException {
-//logger.log(Level.TRACE, "search: " + path);
-        for (int i = 0; i < path.getNameCount(); i++) {
-            Path name = path.getName(i);
-            Path sub = path.subpath(0, i + 1);
-            Path parent = sub.getParent() != null ? sub.getParent() : path.getFileSystem().getRootDirectories().iterator().next();
-            List<Path> bros = getDirectoryEntries(parent, false);
-            Optional<Path> found = bros.stream().filter(p -> p.getFileName().equals(name)).findFirst();
-//logger.log(Level.TRACE, "name: " + name + ", sub: " + sub + ", parent: " + parent + ", found: " + found.isPresent() + ", list: " + bros);
-            if (found.isPresent()) {
-                continue;
-            } else {
-//logger.log(Level.TRACE, "not found: " + path);
+        Path p = path.toAbsolutePath();
+        Path parent = p.getParent();
+        boolean listed = cache.containsFolder(parent);
+        boolean reloading = cache.containsFile(p); // the cached list would give the same entry back
+        boolean invalidated = listed && cache.containsChild(parent, p) && !reloading;
+        boolean useList = listed && !reloading && !invalidated;
+        if ((!useList || cache.getFolderFreshness(parent) == Freshness.EXPIRED) && parentEntry != null && lookupChildSupported) {
+            awaitJournal(path);
+            if (isPendingEntry(parentEntry)) { // replayed just now
+                parentEntry = getEntry(parent);
+            }
+            try {
+                return lookupChild(parentEntry, path);
+            } catch (UnsupportedOperationException e) {
+                logger.log(Level.DEBUG, "lookupChild is not supported: " + getClass().getName());
+                lookupChildSupported = false;
+            }
+        }
+        if (useList) {
+            if (cache.getFolderFreshness(parent) != Freshness.FRESH) {
+                getDirectoryEntries(parent, true); // revalidated or reloaded
+            }
+//logger.log(Level.TRACE, "search: " + path + ", parent: " + parent);
+            if (cache.containsChild(parent, p)) {
+                T entry = cache.getFile(p);
+                if (entry != null) {
+                    return entry;
+                }
+                logger.log(Level.DEBUG, "evicted after listed: " + path);
+            } else if (cache.containsFolder(parent)) {
                 return null;
             }
         }
-//logger.log(Level.TRACE, "found: " + path + ", " + cache.getFile(path));
-        return cache.getFile(path);
+        for (Map.Entry<Path, T> e : loadDirectoryEntries(parent)) {
+            if (e.getKey().equals(p)) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a version token, e.g. an etag, a change cursor or mtime, override this with
+     * {@link #isChanged(Object, Path, Object)} to revalidate expired or stale values instead of reloading them.
+     * the token of a folder must change when its children change.
+     * this is called for each revalidation of an entry and before each listing, so it should be taken from the entry.
+     *
+     * @return null means revalidation is not supported
+     */
+    protected Object getVersion(T entry, Path path) throws IOException {
+        return null;
+    }
+
+    /**
+     * Asks the remote whether the entry, or the children for a folder, is changed since the version,
+     * e.g. by a delta api or If-None-Match.
+     *
+     * @param version taken by {@link #getVersion(Object, Path)}
+     * @return true when it's changed or unknown
+     */
+    protected boolean isChanged(T entry, Path path, Object version) throws IOException {
+        return true;
+    }
+
+    /** @return true when the remote answered the entry is not changed */
+    private boolean isUnchanged(T entry, Path path) throws IOException {
+        Object version = getVersion(entry, path);
+        return version != null && !loadRemote("revalidate", path, () -> isChanged(entry, path, version));
+    }
+
+    /** @return true when the remote answered the children list is not changed, then it's marked as fresh */
+    private boolean isFolderUnchanged(Path dir) throws IOException {
+        Object version = cache.getFolderVersion(dir);
+        if (version == null) {
+            return false;
+        }
+        T entry = getEntry(dir);
+        if (loadRemote("revalidate", dir, () -> isChanged(entry, dir, version))) {
+            return false;
+        }
+        cache.markFolderRevalidated(dir);
+        logger.log(Level.DEBUG, "not changed: " + dir);
+        return true;
+    }
+
+    /**
+     * Looks up a child by its name in one remote call, override this if your api supports it.
+     *
+     * @param parentEntry the parent of the path
+     * @return null when not found
+     * @throws UnsupportedOperationException by default, the parent is listed instead
+     */
+    protected T lookupChild(T parentEntry, Path path) throws IOException {
+        throw new UnsupportedOperationException("lookupChild");
     }
 
     /** cache for filenames */
@@ -96,23 +848,51 @@ public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver
          */
         @Override
         public T getEntry(Path path) throws IOException {
-            if (containsFile(path)) {
-                return getFile(path);
+            loadSnapshot(path);
+            openJournal(path);
+            T cached = getFile(path); // entries might be evicted between contains and get
+            Freshness freshness = cached == null ? Freshness.EXPIRED : isPendingEntry(cached) ? Freshness.FRESH : getFileFreshness(path);
+            if (freshness == Freshness.EXPIRED && cached != null && isUnchanged(cached, path)) {
+                markRevalidated(path);
+                freshness = Freshness.FRESH;
+            }
+            if (freshness != Freshness.EXPIRED) {
+                stats.recordHit();
+                if (freshness == Freshness.STALE) {
+                    refreshLater(refreshingFiles, path, () -> {
+                        if (isUnchanged(cached, path)) {
+                            markRevalidated(path);
+                            return cached;
+                        }
+                        return path.getNameCount() == 0 ? reloadRoot(path) : cacheEntry(path);
+                    });
+                }
+                return cached;
             } else {
+                stats.recordMiss();
                 if (ignoreAppleDouble && path.getFileName() != null && Util.isAppleDouble(path)) {
                     throw new NoSuchFileException("ignore apple double file: " + path);
                 }
 
+                if (isKnownMissing(path)) {
+                    throw new NoSuchFileException(path.toString());
+                }
+
                 if (path.getNameCount() == 0) { // means root
-                    T entry = getRootEntry(path);
-                    putFile(path, entry);
-                    return entry;
+                    return loadRemote("root", path, () -> reloadRoot(path));
                 } else {
-                    return cacheEntry(path);
+                    return entryLoads.execute(path.toAbsolutePath(), () -> loadRemote("entry", path, () -> cacheEntry(path)));
                 }
             }
         }
 
+        /** */
+        private T reloadRoot(Path path) throws IOException {
+            T entry = getRootEntry(path);
+            putFile(path, entry);
+            return entry;
+        }
+
         /**
          * @throws NoSuchFileException see {@link #getEntry(Object)}
          */
@@ -120,9 +900,10 @@ public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver
             T parentEntry = getEntry(path.toAbsolutePath().getParent());
             T entry = CachedFileSystemDriver.this.getEntry(parentEntry, path);
             if (entry != null) {
-                addEntry(path, entry);
+                putEntry(path, entry);
             } else {
                 removeEntry(path);
+                putMissing(path);
                 throw new NoSuchFileException(path.toString());
             }
             return entry;
@@ -134,42 +915,371 @@ public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver
      */
     @Override
     protected List<Path> getDirectoryEntries(Path dir, boolean useCache) throws IOException {
+        T entry = cache.getEntry(dir); // a placeholder has its children list
+
+        if (!isFolder(entry)) {
+            throw new NotDirectoryException("dir: " + dir);
+        }
+
+        List<Path> list = useCache ? cache.getFolder(dir) : null; // might be evicted between contains and get
+        if (list != null) {
+            switch (cache.getFolderFreshness(dir)) {
+            case STALE -> refreshLater(refreshingFolders, dir, () -> isFolderUnchanged(dir) ? null : getDirectoryEntries(dir, false));
+            case EXPIRED -> list = isFolderUnchanged(dir) ? list : null;
+            default -> {}
+            }
+        }
+        if (list == null) {
+            List<Map.Entry<Path, T>> entries = loadDirectoryEntries(dir);
+            list = new ArrayList<>(entries.size());
+            for (Map.Entry<Path, T> e : entries) {
+                list.add(e.getKey());
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Lists a folder remotely and caches it, concurrent calls for the same folder are coalesced.
+     *
+     * @return children paths and entries, entries are valid even if they are evicted from the cache while listing
+     */
+    private List<Map.Entry<Path, T>> loadDirectoryEntries(Path dir) throws IOException {
+        awaitJournal(dir);
+        T dirEntry = getEntry(dir);
+        return folderLoads.execute(dir.toAbsolutePath(), () -> loadRemote("folder", dir, () -> cacheDirectoryEntries(dirEntry, dir)));
+    }
+
+    /** @see #loadDirectoryEntries(Path) */
+    private List<Map.Entry<Path, T>> cacheDirectoryEntries(T entry, Path dir) throws IOException {
+        List<Map.Entry<Path, T>> list = new ArrayList<>();
+        try (Pages<Map.Entry<Path, T>> pages = cachingPages(entry, dir, false)) {
+            List<Map.Entry<Path, T>> page;
+            while ((page = pages.next()) != null) {
+                list.addAll(page);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Lists a folder remotely page by page, children are cached as each page arrives
+     * and the children list is cached only when the last page arrived.
+     * the list is dropped when any child is evicted while listing, so that it never refers an evicted entry.
+     *
+     * @param speculative sub folders are listed in background after the last page
+     */
+    private Pages<Map.Entry<Path, T>> cachingPages(T entry, Path dir, boolean speculative) throws IOException {
+        Object version = getVersion(entry, dir); // taken before listing, a change while listing makes it old
+        return new Pages<>() {
+            /** opened at the first page, it might list all at once */
+            Pages<T> pages;
+            /** all children so far, null after the end */
+            List<Path> list = new ArrayList<>();
+
+            @Override
+            public List<Map.Entry<Path, T>> next() throws IOException {
+                if (list == null) {
+                    return null;
+                }
+                if (pages == null) {
+                    pages = getDirectoryEntryPages(entry, dir);
+                }
+                List<T> children = pages.next();
+                if (children == null) {
+                    cache.putFolder(dir, list);
+                    cache.setFolderVersion(dir, version);
+                    for (Path child : list) { // an eviction after this check drops the list by itself
+                        if (!cache.containsFile(child)) {
+                            logger.log(Level.DEBUG, "children evicted while listing: " + dir + ", " + child);
+                            cache.invalidateFolder(dir);
+                            break;
+                        }
+                    }
+                    if (speculative) {
+                        speculate(list, speculativeDepth);
+                    }
+                    list = null;
+                    return null;
+                }
+                List<Map.Entry<Path, T>> page = new ArrayList<>(children.size());
+                for (T child : children) {
+                    Path childPath = dir.resolve(getFilenameString(child));
+                    page.add(Map.entry(childPath, child));
+                    list.add(childPath);
+                    cache.putFile(childPath, child);
+                }
+                return page;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (pages != null) {
+                    pages.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * A cached children list is served first, it's revalidated by the ttl like {@link #getDirectoryEntries(Path, boolean)},
+     * e.g. a folder listed speculatively is served without a remote call.
+     * otherwise entries are cached as the directory stream proceeds, sub folders might be listed in background after that.
+     * each page fetched is recorded as a "folder" load.
+     * a stream waits for the folder being listed by another thread and gives its result,
+     * but a stream is not waited for by others, its consumer might never reach the end.
+     */
+    @Override
+    protected Pages<Map.Entry<Path, T>> getDirectoryEntryPages(Path dir) throws IOException {
+        awaitJournal(dir);
         T entry = getEntry(dir);
 
         if (!isFolder(entry)) {
             throw new NotDirectoryException("dir: " + dir);
         }
 
-        List<Path> list = new ArrayList<>();
-        if (useCache && cache.containsFolder(dir)) {
-//logger.log(Level.TRACE, "cache list: " + cache.getFolder(dir));
-            list = cache.getFolder(dir);
-        } else {
-            List<T> children = getDirectoryEntries(entry, dir);
-            for (T child : children) {
-                Path childPath = dir.resolve(getFilenameString(child));
-                list.add(childPath);
-                cache.putFile(childPath, child);
+        if (cache.containsFolder(dir)) {
+            List<Path> children = getDirectoryEntries(dir, true);
+            List<Map.Entry<Path, T>> page = new ArrayList<>(children.size());
+            for (Path child : children) {
+                T childEntry = cache.getFile(child);
+                if (childEntry == null) { // evicted just now
+                    page = null;
+                    break;
+                }
+                page.add(Map.entry(child, childEntry));
+            }
+            if (page != null) {
+                return Pages.of(page);
             }
+        }
 
-            cache.putFolder(dir, list);
+        List<Map.Entry<Path, T>> list = folderLoads.join(dir.toAbsolutePath());
+        if (list != null) {
+            return Pages.of(list);
         }
 
-        return list;
+        Pages<Map.Entry<Path, T>> pages = cachingPages(entry, dir, true);
+        return new Pages<>() {
+            @Override
+            public List<Map.Entry<Path, T>> next() throws IOException {
+                return loadRemote("folder", dir, pages::next);
+            }
+
+            @Override
+            public void close() throws IOException {
+                pages.close();
+            }
+        };
+    }
+
+    /** @see #prefetch(Path, int, int, ObjLongConsumer) */
+    public long prefetch(Path root, int depth, int parallelism) throws IOException {
+        return prefetch(root, depth, parallelism, (dir, count) -> {});
+    }
+
+    /**
+     * Warms the cache by listing folders in the subtree concurrently.
+     * folders already cached and fresh are not listed remotely again.
+     *
+     * @param depth levels to list like {@link java.nio.file.Files#walk(Path, int, java.nio.file.FileVisitOption...)},
+     *              1 lists the root only
+     * @param parallelism max number of concurrent remote listings
+     * @param progress called with a folder listed and the number of folders listed so far
+     * @return number of folders listed
+     */
+    public long prefetch(Path root, int depth, int parallelism, ObjLongConsumer<Path> progress) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Semaphore permits = new Semaphore(parallelism); // joining workers might be compensated by extra threads
+        AtomicLong listed = new AtomicLong();
+        try {
+            pool.invoke(new PrefetchTask(root, depth, permits, listed, progress));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        logger.log(Level.DEBUG, "prefetched: " + root + ", folders: " + listed.get());
+        return listed.get();
+    }
+
+    /** lists a folder and forks for sub folders */
+    private class PrefetchTask extends RecursiveAction {
+
+        /** */
+        private static final long serialVersionUID = 1L;
+
+        final Path dir;
+        final int depth;
+        final Semaphore permits;
+        final AtomicLong listed;
+        final ObjLongConsumer<Path> progress;
+
+        PrefetchTask(Path dir, int depth, Semaphore permits, AtomicLong listed, ObjLongConsumer<Path> progress) {
+            this.dir = dir;
+            this.depth = depth;
+            this.permits = permits;
+            this.listed = listed;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth < 1) {
+                return;
+            }
+            List<PrefetchTask> subtasks = new ArrayList<>();
+            try {
+                List<Path> children;
+                permits.acquireUninterruptibly();
+                try {
+                    children = getDirectoryEntries(dir, true);
+                } finally {
+                    permits.release();
+                }
+                progress.accept(dir, listed.incrementAndGet());
+                if (depth > 1) {
+                    for (Path child : children) {
+                        T entry = cache.peekFile(child);
+                        if (entry != null && isFolder(entry)) {
+                            subtasks.add(new PrefetchTask(child, depth - 1, permits, listed, progress));
+                        }
+                    }
+                }
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                logger.log(Level.DEBUG, "prefetch: gone: " + dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    /** parents not cached are listed once for each before reading */
+    @Override
+    public <A extends BasicFileAttributes> List<A> readAttributes(List<Path> paths, Class<A> type) throws IOException {
+        Set<Path> parents = new LinkedHashSet<>();
+        for (Path path : paths) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null && !cache.containsFile(path) && !cache.containsFolder(parent)) {
+                parents.add(parent);
+            }
+        }
+        for (Path parent : parents) {
+            try {
+                getDirectoryEntries(parent, true);
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                logger.log(Level.DEBUG, "no parent: " + parent);
+            }
+        }
+        return super.readAttributes(paths, type);
+    }
+
+    /** cache updates of batch operations on the current thread, null when not in a batch */
+    private final ThreadLocal<List<Runnable>> deferredUpdates = new ThreadLocal<>();
+
+    /** updates the cache now, or later for a batch operation */
+    private void updateCache(Runnable update) {
+        List<Runnable> deferred = deferredUpdates.get();
+        if (deferred != null) {
+            deferred.add(update);
+        } else {
+            update.run();
+        }
+    }
+
+    /** cache updates are applied at once after each level of the batch */
+    @Override
+    protected Runnable executeBatchOperation(BatchOperation operation) throws IOException {
+        List<Runnable> deferred = new ArrayList<>();
+        deferredUpdates.set(deferred);
+        try {
+            super.executeBatchOperation(operation);
+        } finally {
+            deferredUpdates.remove();
+        }
+        return () -> deferred.forEach(Runnable::run);
+    }
+
+    /** paths touched are dropped from the cache, they will be reloaded when they are queried */
+    @Override
+    protected void batchedEntries(List<BatchOperation> operations) {
+        for (BatchOperation operation : operations) {
+            Path source = operation.getSource();
+            if (operation.getKind() != BatchOperation.Kind.COPY) {
+                cache.removeEntry(source);
+                cache.invalidateTree(source);
+            }
+            if (operation.getTarget() != null) {
+                cache.invalidateTree(operation.getTarget());
+                cache.invalidateFolder(operation.getTarget().toAbsolutePath().getParent());
+            }
+        }
     }
 
     @Override
     protected void createDirectoryEntry(Path dir) throws IOException {
+        T pendingParentEntry = cache.getEntry(dir.toAbsolutePath().getParent());
+        Journal journal = writeBehind();
+        T placeholder = journal != null ? createPendingEntry(null, dir) : null;
+        if (placeholder != null) {
+            synchronized (journal) {
+                synchronized (placeholders) {
+                    placeholders.put(placeholder, null);
+                }
+                cache.addEntry(dir, placeholder);
+                cache.putFolder(dir, new ArrayList<>()); // a new folder is empty
+                try {
+                    journal.append(Journal.Kind.CREATE, dir, null, new Pending<>(null, pendingParentEntry, placeholder));
+                } catch (IOException e) {
+                    cache.removeEntry(dir);
+                    cache.invalidateTree(dir);
+                    throw e;
+                }
+            }
+            return;
+        }
         T parentEntry = getEntry(dir.toAbsolutePath().getParent());
         T newEntry = createDirectoryEntry(parentEntry, dir);
-        cache.addEntry(dir, newEntry);
+        updateCache(() -> cache.addEntry(dir, newEntry));
+    }
+
+    /** a folder written behind is checked by its cached children */
+    @Override
+    protected void checkRemovable(Path path) throws IOException {
+        T entry = cache.getEntry(path);
+        if (isPendingEntry(entry)) {
+            if (!isFolder(entry) || cache.getChildCount(path) == 0) {
+                return;
+            } else if (cache.getChildCount(path) > 0) {
+                throw new DirectoryNotEmptyException("dir : " + path);
+            }
+        }
+        super.checkRemovable(path);
     }
 
     @Override
     protected void removeEntry(Path path) throws IOException {
+        T pendingEntry = cache.getEntry(path);
+        Journal journal = writeBehind();
+        if (journal != null) {
+            synchronized (journal) {
+                cache.removeEntry(path);
+                try {
+                    if (!journal.append(Journal.Kind.DELETE, path, null, new Pending<>(pendingEntry, null, null))) {
+                        logger.log(Level.DEBUG, "creation is cancelled: " + path);
+                    }
+                } catch (IOException e) {
+                    cache.invalidateFolder(path.toAbsolutePath().getParent());
+                    throw e;
+                }
+            }
+            return;
+        }
         T entry = getEntry(path);
         removeEntry(entry, path);
-        cache.removeEntry(path);
+        updateCache(() -> cache.removeEntry(path));
     }
 
     @Override
@@ -180,38 +1290,101 @@ public abstract class CachedFileSystemDriver<T> extends ExtendedFileSystemDriver
             T newEntry = copyEntry(sourceEntry, targetParentEntry, source, target, options);
 
             if (newEntry != null) {
-                cache.addEntry(target, newEntry);
+                updateCache(() -> cache.addEntry(target, newEntry));
             }
         } else {
-            // TODO java spec. allows empty folder
-            throw new UnsupportedOperationException("source can not be a folder");
+            createDirectoryEntry(target);
         }
     }
 
+    @Override
+    protected void copyFolderEntry(Path source, Path target, Set<CopyOption> options) throws IOException {
+        T sourceEntry = getEntry(source);
+        T targetParentEntry = getEntry(target.toAbsolutePath().getParent());
+        T newEntry = copyFolderEntry(sourceEntry, targetParentEntry, source, target, options);
+        updateCache(() -> {
+            cache.invalidateTree(target);
+            if (newEntry != null) {
+                cache.addEntry(target, newEntry);
+            }
+        });
+    }
+
     @Override
     protected void moveEntry(Path source, Path target, boolean targetIsParent) throws IOException {
-        T sourceEntry = cache.getEntry(source);
-        T targetParentEntry = cache.getEntry(targetIsParent ? target : target.toAbsolutePath().getParent());
+        T sourceEntry = getEntry(source);
+        T targetParentEntry = getEntry(targetIsParent ? target : target.toAbsolutePath().getParent());
         if (!isFolder(sourceEntry)) {
             T newEntry = moveEntry(sourceEntry, targetParentEntry, source, targetIsParent ? source : target, targetIsParent);
-            cache.removeEntry(source);
-            if (targetIsParent) {
-                cache.addEntry(target.resolve(source.getFileName()), newEntry);
-            } else {
-                cache.addEntry(target, newEntry);
-            }
+            updateCache(() -> {
+                cache.removeEntry(source);
+                if (targetIsParent) {
+                    cache.addEntry(target.resolve(source.getFileName()), newEntry);
+                } else {
+                    cache.addEntry(target, newEntry);
+                }
+            });
         } else if (isFolder(sourceEntry)) {
             T newEntry = moveFolderEntry(sourceEntry, targetParentEntry, source, target, targetIsParent);
-            cache.moveEntry(source, target, newEntry);
+            updateCache(() -> cache.moveEntry(source, target, newEntry));
         }
     }
 
     @Override
     protected void renameEntry(Path source, Path target) throws IOException {
-        T sourceEntry = cache.getEntry(source);
-        T targetParentEntry = cache.getEntry(target.getParent());
+        T pendingEntry = cache.getEntry(source);
+        Journal journal = writeBehind();
+        T placeholder = journal != null ? createPendingEntry(pendingEntry, target) : null;
+        if (placeholder != null) {
+            T pendingParentEntry = cache.getEntry(target.getParent());
+            synchronized (journal) {
+                synchronized (placeholders) {
+                    placeholders.put(placeholder, null);
+                }
+                cache.moveEntry(source, target, placeholder);
+                try {
+                    journal.append(Journal.Kind.RENAME, source, target, new Pending<>(pendingEntry, pendingParentEntry, placeholder));
+                } catch (IOException e) {
+                    cache.invalidateTree(target);
+                    cache.invalidateFolder(target.toAbsolutePath().getParent());
+                    throw e;
+                }
+            }
+            return;
+        }
+        T sourceEntry = getEntry(source);
+        T targetParentEntry = getEntry(target.getParent());
         T newEntry = renameEntry(sourceEntry, targetParentEntry, source, target);
-        cache.removeEntry(source);
-        cache.addEntry(target, newEntry);
+        updateCache(() -> {
+            cache.removeEntry(source);
+            cache.addEntry(target, newEntry);
+        });
+    }
+
+    /**
+     * applies mutations written behind, stops background tasks, saves a snapshot and unregisters the monitor,
+     * subclasses overriding this should call super
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        if (monitor != null) {
+            monitor.unregister();
+        }
+        if (snapshotSaver != null) {
+            snapshotSaver.shutdownNow();
+        }
+        if (snapshot != null) {
+            saveSnapshot();
+        }
+        if (speculator != null) {
+            speculator.shutdownNow();
+        }
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        super.close();
     }
 }
@@ -6,6 +6,7 @@
 
 package com.github.fge.filesystem.driver;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,19 +14,32 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.FileStore;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
 
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
 import vavi.io.SeekableDataInputStream;
+import vavi.nio.file.EvictionPolicy;
+import vavi.nio.file.FileDataCache;
+import vavi.nio.file.LfuEvictionPolicy;
+import vavi.nio.file.LruEvictionPolicy;
+import vavi.nio.file.SparseFile;
+import vavi.nio.file.TeeFile;
 import vavi.util.ByteUtil;
 
 import static java.lang.System.getLogger;
@@ -36,9 +50,21 @@ import static java.lang.System.getLogger;
  * <p>
  * Caching downloaded files also for like a network drive.
  * Double means caching "directory structure" and "file data".
+ * file data are keyed by a path and its version, see {@link #getVersion(Object, Path)},
+ * so data changed remotely are never served.
  * </p>
  * system property
  * <li>"disableFileCache" ({@link #ENV_DISABLED_FILE_CACHE}) ... true: don't use files cache</li>
+ * <li>"fileCacheMaxBytes" ({@link #ENV_FILE_CACHE_MAX_BYTES}) ... max total bytes of cached files</li>
+ * <li>"fileCachePolicy" ({@link #ENV_FILE_CACHE_POLICY}) ... "lru" (default) or "lfu", how files are evicted</li>
+ * <li>"fileCacheBlockSize" ({@link #ENV_FILE_CACHE_BLOCK_SIZE}) ... bytes of a block downloaded by a range,
+ *     needs {@link #downloadEntryImpl(Object, Path, long, long)}</li>
+ * <li>"fileCacheReadAhead" ({@link #ENV_FILE_CACHE_READ_AHEAD}) ... max blocks downloaded ahead while reading sequentially</li>
+ * <li>"fileCacheTee" ({@link #ENV_FILE_CACHE_TEE}) ... true: a whole file is read while it's downloaded into the cache</li>
+ * <li>"fileCacheDir" ({@link #ENV_FILE_CACHE_DIR}) ... a folder for files kept over restarts,
+ *     a temporary folder deleted at exit if not specified. it should be empty at first, a folder not empty
+ *     which is not made by the cache is refused.
+ *     files downloaded by blocks are not kept, they are downloaded again after a restart</li>
  *
  * @param <T> different type of file system driver's file object
  * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
@@ -48,12 +74,67 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
 
     private static final Logger logger = getLogger(DoubleCachedFileSystemDriver.class.getName());
 
-    /** TODO size limit */
+    /** */
     private Path cacheRoot;
 
+    /** null when disabled */
+    private FileDataCache fileCache;
+
     /** env key for ignoring apple double files */
     public static final String ENV_DISABLED_FILE_CACHE = "disableFileCache";
 
+    /** env key for max total bytes of cached files, unbounded if not specified */
+    public static final String ENV_FILE_CACHE_MAX_BYTES = "fileCacheMaxBytes";
+
+    /** env key for an eviction policy of cached files, "lru" or "lfu" */
+    public static final String ENV_FILE_CACHE_POLICY = "fileCachePolicy";
+
+    /** env key for bytes of a block downloaded by a range */
+    public static final String ENV_FILE_CACHE_BLOCK_SIZE = "fileCacheBlockSize";
+
+    /** env key for max blocks downloaded ahead while reading sequentially */
+    public static final String ENV_FILE_CACHE_READ_AHEAD = "fileCacheReadAhead";
+
+    /** env key for reading a whole file while it's downloaded into the cache */
+    public static final String ENV_FILE_CACHE_TEE = "fileCacheTee";
+
+    /** env key for a folder of cached files kept over restarts */
+    public static final String ENV_FILE_CACHE_DIR = "fileCacheDir";
+
+    /** default for {@link #ENV_FILE_CACHE_BLOCK_SIZE} */
+    private static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    /** default for {@link #ENV_FILE_CACHE_READ_AHEAD} */
+    private static final int DEFAULT_READ_AHEAD = 8;
+
+    /** */
+    private int blockSize;
+
+    /** */
+    private int readAhead;
+
+    /** false after {@link #downloadEntryImpl(Object, Path, long, long)} threw {@link UnsupportedOperationException} */
+    private volatile boolean rangedDownloadSupported = true;
+
+    /** <key in the file cache, sparse file> */
+    private final Map<String, SparseFile> sparseFiles = new ConcurrentHashMap<>();
+
+    /** <key in the file cache, file being downloaded> */
+    private final Map<String, TeeFile> teeFiles = new ConcurrentHashMap<>();
+
+    /** runs a download for a tee file */
+    private static final Executor teeWriter = r -> {
+        Thread thread = new Thread(r, "file-cache-tee");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    /** */
+    private boolean isTee;
+
+    /** <absolute path, version of the data cached> */
+    private final Map<Path, String> dataVersions = new ConcurrentHashMap<>();
+
     /** file cache enabled */
     private boolean isFileCacheDisabled;
 
@@ -67,9 +148,24 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
         super.setEnv(env);
         this.isFileCacheDisabled = isEnabled(ENV_DISABLED_FILE_CACHE);
         if (!isFileCacheDisabled) {
-            cacheRoot = Files.createTempDirectory("java7-fs-base");
-            logger.log(Level.DEBUG, "files cache is created: " + cacheRoot);
-            Runtime.getRuntime().addShutdownHook(new Thread(this::dispose));
+            Object dir = env.get(ENV_FILE_CACHE_DIR);
+            cacheRoot = dir != null ? Paths.get(String.valueOf(dir)) : Files.createTempDirectory("java7-fs-base");
+            long maxBytes = getLong(ENV_FILE_CACHE_MAX_BYTES, -1);
+            Object policy = env.get(ENV_FILE_CACHE_POLICY);
+            EvictionPolicy<String> evictionPolicy = "lfu".equalsIgnoreCase(String.valueOf(policy)) ?
+                    new LfuEvictionPolicy<>(-1, maxBytes) : new LruEvictionPolicy<>(-1, maxBytes);
+            fileCache = new FileDataCache(cacheRoot, evictionPolicy, CACHE_FILE_NAMES);
+            blockSize = (int) getLong(ENV_FILE_CACHE_BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+            readAhead = (int) getLong(ENV_FILE_CACHE_READ_AHEAD, DEFAULT_READ_AHEAD);
+            isTee = isEnabled(ENV_FILE_CACHE_TEE);
+            if (dir != null) {
+                fileCache.openIndex();
+                logger.log(Level.DEBUG, "files cache is opened: " + cacheRoot + ", " + evictionPolicy);
+                Runtime.getRuntime().addShutdownHook(new Thread(this::closeFileCache));
+            } else {
+                logger.log(Level.DEBUG, "files cache is created: " + cacheRoot + ", " + evictionPolicy);
+                Runtime.getRuntime().addShutdownHook(new Thread(this::dispose));
+            }
         } else {
             logger.log(Level.DEBUG, "files cache is disabled");
         }
@@ -89,8 +185,31 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
         }
     }
 
-    /** */
-    private void downloadAsCache(Path localCache, Path source, InputStream in) throws IOException {
+    /** saves the index of the files cache */
+    private void closeFileCache() {
+        try {
+            fileCache.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot save the index: " + cacheRoot + ", " + e);
+        }
+    }
+
+    /** saves the index of the files cache kept over restarts, subclasses overriding this should call super */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (fileCache != null) {
+            fileCache.close();
+        }
+    }
+
+    @Override
+    protected long getFileCacheBytes() {
+        return fileCache != null ? fileCache.size() : -1;
+    }
+
+    /** @return false when the size is wrong, the file is deleted */
+    private boolean downloadAsCache(Path localCache, Path source, InputStream in) throws IOException {
         OutputStream os = Files.newOutputStream(localCache, StandardOpenOption.CREATE_NEW);
         byte[] buf = new byte[8192];
         while (true) {
@@ -104,16 +223,21 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
         if (Files.size(localCache) != Files.size(source)) {
             logger.log(Level.DEBUG, "CACHE failed, delete: " + localCache.getFileName() + ", local: " + Files.size(localCache) + ", source: " + Files.size(source));
             Files.delete(localCache);
+            return false;
         } else {
             logger.log(Level.DEBUG, "CACHE created: " + localCache.getFileName() + ", local: " + Files.size(localCache) + ", source: " + Files.size(source));
+            return true;
         }
     }
 
+    /** md5 keys, and partial files of them, see {@link #getUniqueKey(Path, String)} */
+    private static final Pattern CACHE_FILE_NAMES = Pattern.compile("[0-9a-fA-F]{32}(\\.blocks|\\.part|\\.\\d+\\.tmp)?");
+
     /** */
-    private static String getUniqueKey(Path path) throws IOException {
+    private static String getUniqueKey(Path path, String version) throws IOException {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
-            md.update(path.toAbsolutePath().toString().getBytes());
+            md.update((path.toAbsolutePath() + "\0" + version).getBytes());
             return ByteUtil.toHexString(md.digest());
         } catch (NoSuchAlgorithmException e) {
             throw new IOException(e);
@@ -127,15 +251,220 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
             return downloadEntryImpl(entry, path, options);
         }
 
-        Path localCache = cacheRoot.resolve(getUniqueKey(path));
-        if (!Files.exists(localCache)) {
-            logger.log(Level.DEBUG, "downloading and caching: " + path + ", " + localCache.getFileName());
-            downloadAsCache(localCache, path, downloadEntryImpl(entry, path, options));
+        Path absolute = path.toAbsolutePath();
+        String version = getDataVersion(entry, path);
+        String oldVersion = dataVersions.put(absolute, version);
+        if (oldVersion != null && !oldVersion.equals(version)) {
+            logger.log(Level.DEBUG, "CACHE changed: " + path + ", " + oldVersion + " -> " + version);
+            removeData(absolute, oldVersion);
+        }
+        String key = getUniqueKey(absolute, version);
+        SeekableByteChannel channel = fileCache.open(key);
+        if (channel == null && rangedDownloadSupported) {
+            channel = openSparse(entry, path, key);
+        }
+        if (channel == null && isTee) {
+            channel = openTee(entry, path, options, key);
+        } else if (channel == null) {
+            logger.log(Level.DEBUG, "downloading and caching: " + path + ", " + key);
+            Path tmp = cacheRoot.resolve(key + "." + Thread.currentThread().getId() + ".tmp"); // concurrent downloads don't mix
+            Files.deleteIfExists(tmp);
+            if (!downloadAsCache(tmp, path, downloadEntryImpl(entry, path, options))) {
+                return downloadEntryImpl(entry, path, options);
+            }
+            Files.move(tmp, fileCache.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = fileCache.put(key);
         } else {
-            logger.log(Level.DEBUG, "CACHE hit for: " + path + ", " + localCache.getFileName());
+            logger.log(Level.DEBUG, "CACHE hit for: " + path + ", " + key);
         }
         // see vavi.nio.file.Util.SeekableByteChannelForReading
-        return new SeekableDataInputStream(Files.newByteChannel(localCache));
+        return new SeekableDataInputStream(channel);
+    }
+
+    /** @return {@link #getVersion(Object, Path)} or size and last modified time */
+    private String getDataVersion(T entry, Path path) throws IOException {
+        Object version = getVersion(entry, path);
+        if (version != null) {
+            return version.toString();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return attributes.size() + "@" + attributes.lastModifiedTime().toMillis();
+    }
+
+    /** removes a whole file and blocks */
+    private void removeData(Path path, String version) throws IOException {
+        String key = getUniqueKey(path, version);
+        fileCache.remove(key);
+        fileCache.remove(key + ".blocks");
+        sparseFiles.remove(key + ".blocks");
+    }
+
+    /** removes data of the path and under it */
+    private void invalidateData(Path path) throws IOException {
+        if (fileCache == null) {
+            return;
+        }
+        Path absolute = path.toAbsolutePath();
+        for (Path cached : dataVersions.keySet()) {
+            if (cached.startsWith(absolute)) {
+                String version = dataVersions.remove(cached);
+                if (version != null) {
+                    logger.log(Level.DEBUG, "CACHE invalidated: " + cached);
+                    removeData(cached, version);
+                }
+            }
+        }
+    }
+
+    /** renames whole files of the source and under it, blocks are removed */
+    private void moveData(Path source, Path target) throws IOException {
+        if (fileCache == null) {
+            return;
+        }
+        Path absoluteSource = source.toAbsolutePath();
+        Path absoluteTarget = target.toAbsolutePath();
+        invalidateData(absoluteTarget);
+        for (Path cached : dataVersions.keySet()) {
+            if (cached.startsWith(absoluteSource)) {
+                String version = dataVersions.remove(cached);
+                if (version == null) {
+                    continue;
+                }
+                Path moved = absoluteTarget.resolve(absoluteSource.relativize(cached).toString());
+                String key = getUniqueKey(cached, version);
+                fileCache.remove(key + ".blocks");
+                sparseFiles.remove(key + ".blocks");
+                try {
+                    if (fileCache.rename(key, getUniqueKey(moved, version))) {
+                        dataVersions.put(moved, version);
+                        logger.log(Level.DEBUG, "CACHE moved: " + cached + " -> " + moved);
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.DEBUG, "CACHE cannot move, removed: " + cached + ", " + e);
+                    fileCache.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void beforeUploadEntry(Path path) throws IOException {
+        invalidateData(path);
+    }
+
+    @Override
+    protected void removeEntry(Path path) throws IOException {
+        super.removeEntry(path);
+        invalidateData(path);
+    }
+
+    @Override
+    protected void moveEntry(Path source, Path target, boolean targetIsParent) throws IOException {
+        super.moveEntry(source, target, targetIsParent);
+        moveData(source, targetIsParent ? target.resolve(source.getFileName().toString()) : target);
+    }
+
+    @Override
+    protected void renameEntry(Path source, Path target) throws IOException {
+        super.renameEntry(source, target);
+        moveData(source, target);
+    }
+
+    /**
+     * Opens a sparse file downloading blocks when they are read, the head block is downloaded first.
+     *
+     * @return null when ranged downloads are not supported
+     */
+    private SeekableByteChannel openSparse(T entry, Path path, String key) throws IOException {
+        String sparseKey = key + ".blocks";
+        SparseFile sparse;
+        Closeable release;
+        synchronized (sparseFiles) {
+            sparse = fileCache.contains(sparseKey) ? sparseFiles.get(sparseKey) : null;
+            if (sparse == null) {
+                sparse = new SparseFile(fileCache.resolve(sparseKey), Files.size(path), blockSize,
+                        (offset, length) -> downloadEntryImpl(entry, path, offset, length),
+                        bytes -> fileCache.resize(sparseKey, bytes));
+                sparseFiles.put(sparseKey, sparse);
+            }
+            release = fileCache.acquire(sparseKey);
+        }
+        try {
+            sparse.prefetch(0, blockSize);
+        } catch (UnsupportedOperationException e) {
+            logger.log(Level.DEBUG, "ranged download is not supported: " + getClass().getName());
+            rangedDownloadSupported = false;
+            release.close();
+            fileCache.remove(sparseKey);
+            sparseFiles.remove(sparseKey);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            release.close();
+            throw e;
+        }
+        logger.log(Level.DEBUG, "CACHE sparse: " + path + ", " + sparseKey + ", " + sparse.cachedBytes() + "/" + sparse.size());
+        try {
+            return sparse.newChannel(readAhead, release);
+        } catch (IOException | RuntimeException e) {
+            release.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file being downloaded into the cache, a download is shared by readers of the same file.
+     * the file is promoted to the cache only when all bytes are downloaded.
+     */
+    private SeekableByteChannel openTee(T entry, Path path, Set<? extends OpenOption> options, String key) throws IOException {
+        synchronized (teeFiles) {
+            TeeFile tee = teeFiles.get(key);
+            if (tee == null) {
+                SeekableByteChannel promoted = fileCache.open(key); // promoted just now
+                if (promoted != null) {
+                    return promoted;
+                }
+                logger.log(Level.DEBUG, "downloading and caching by tee: " + path + ", " + key);
+                Path part = cacheRoot.resolve(key + ".part");
+                Files.deleteIfExists(part);
+                TeeFile started = new TeeFile(part, Files.size(path));
+                teeFiles.put(key, started); // before started, a fast download removes it
+                try {
+                    started.start(downloadEntryImpl(entry, path, options), teeWriter, complete -> promote(key, started, complete));
+                } catch (IOException | RuntimeException e) {
+                    teeFiles.remove(key);
+                    Files.deleteIfExists(part);
+                    throw e;
+                }
+                tee = started;
+            } else {
+                logger.log(Level.DEBUG, "CACHE joined tee: " + path + ", " + key);
+            }
+            return tee.newChannel();
+        }
+    }
+
+    /** moves the complete file into the cache or deletes the partial one, readers keep reading it */
+    private void promote(String key, TeeFile tee, boolean complete) {
+        try {
+            if (complete) {
+                Files.move(tee.getFile(), fileCache.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                fileCache.put(key).close();
+                logger.log(Level.DEBUG, "CACHE created by tee: " + key);
+            } else {
+                Files.deleteIfExists(tee.getFile());
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot promote: " + tee.getFile() + ", " + e);
+            try {
+                Files.deleteIfExists(tee.getFile());
+            } catch (IOException f) {
+                logger.log(Level.DEBUG, "cannot delete: " + f);
+            }
+        } finally {
+            synchronized (teeFiles) {
+                teeFiles.remove(key, tee);
+            }
+        }
     }
 
     /**
@@ -144,4 +473,16 @@ public abstract class DoubleCachedFileSystemDriver<T> extends CachedFileSystemDr
      * @see #newInputStream(Path, Set), {@link #downloadEntry(Object, Path, Set)}
      */
     protected abstract InputStream downloadEntryImpl(T sourceEntry, Path path, Set<? extends OpenOption> options) throws IOException;
+
+    /**
+     * Downloads a range, override this to cache files by blocks, then a file is downloaded only where it's read.
+     *
+     * @param offset start of the range in bytes
+     * @param length bytes of the range within the file
+     * @throws UnsupportedOperationException by default, whole files are downloaded
+     * @see #ENV_FILE_CACHE_BLOCK_SIZE
+     */
+    protected InputStream downloadEntryImpl(T sourceEntry, Path path, long offset, long length) throws IOException {
+        throw new UnsupportedOperationException("ranged download");
+    }
 }
@@ -7,6 +7,7 @@
 package com.github.fge.filesystem.driver;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.System.Logger;
@@ -23,8 +24,22 @@ import java.nio.file.NotDirectoryException;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileAttribute;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -32,6 +47,7 @@ import javax.annotation.ParametersAreNonnullByDefault;
 
 import com.github.fge.filesystem.exceptions.IsDirectoryException;
 import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
+import vavi.nio.file.Pages;
 import vavi.nio.file.Util;
 
 import static java.lang.System.getLogger;
@@ -112,9 +128,18 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
         }
 
         T parent = getEntry(path.toAbsolutePath().getParent());
+        beforeUploadEntry(path);
         return uploadEntry(parent, path, options);
     }
 
+    /**
+     * common process, called before the path is written, e.g. for dropping local copies.
+     *
+     * @see #newOutputStream(Path, Set)
+     */
+    protected void beforeUploadEntry(Path path) throws IOException {
+    }
+
     /**
      * Overrides this method if you want to do special action when the target file exists.
      *
@@ -137,7 +162,55 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
     @Override
     public final DirectoryStream<Path> newDirectoryStream(
             Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
-        return Util.newDirectoryStream(getDirectoryEntries(dir, false), filter);
+        return Util.newDirectoryStream(getDirectoryEntryPages(dir).map(Map.Entry::getKey), filter);
+    }
+
+    /**
+     * A directory stream of paths with their attributes taken from the listing,
+     * walking a tree costs one remote call per directory instead of one per file.
+     *
+     * @param filter for paths, nullable
+     * @see #newDirectoryStream(Path, DirectoryStream.Filter)
+     */
+    public <A extends BasicFileAttributes> DirectoryStream<Map.Entry<Path, A>> newDirectoryStream(
+            Path dir, Class<A> type, DirectoryStream.Filter<? super Path> filter) throws IOException {
+        Pages<Map.Entry<Path, T>> pages = getDirectoryEntryPages(dir);
+        return Util.newDirectoryStream(new Pages<>() {
+            @Override
+            public List<Map.Entry<Path, A>> next() throws IOException {
+                List<Map.Entry<Path, T>> page = pages.next();
+                if (page == null) {
+                    return null;
+                }
+                List<Map.Entry<Path, A>> list = new ArrayList<>(page.size());
+                for (Map.Entry<Path, T> e : page) {
+                    list.add(Map.entry(e.getKey(), getFileAttributes(type, getPathMetadata(e.getValue()))));
+                }
+                return list;
+            }
+
+            @Override
+            public void close() throws IOException {
+                pages.close();
+            }
+        }, filter != null ? e -> filter.accept(e.getKey()) : null);
+    }
+
+    /**
+     * Reads attributes of paths in bulk.
+     *
+     * @return attributes in the same order of the paths, null for a path not found
+     */
+    public <A extends BasicFileAttributes> List<A> readAttributes(List<Path> paths, Class<A> type) throws IOException {
+        List<A> list = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            try {
+                list.add(getFileAttributes(type, getPathMetadata(path)));
+            } catch (NoSuchFileException e) {
+                list.add(null);
+            }
+        }
+        return list;
     }
 
     /**
@@ -147,6 +220,33 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
      */
     protected abstract List<T> getDirectoryEntries(T dirEntry, Path dir) throws IOException;
 
+    /**
+     * implement driver depends code if your api returns a listing by pages,
+     * a page is requested when the directory stream reaches it.
+     * the default is one page made by {@link #getDirectoryEntries(Object, Path)}.
+     *
+     * @see #newDirectoryStream(Path, DirectoryStream.Filter), {@link #getDirectoryEntryPages(Path)}
+     */
+    protected Pages<T> getDirectoryEntryPages(T dirEntry, Path dir) throws IOException {
+        return Pages.of(getDirectoryEntries(dirEntry, dir));
+    }
+
+    /**
+     * common process
+     *
+     * @return pages of children paths and entries
+     * @see #getDirectoryEntryPages(Object, Path)
+     */
+    protected Pages<Map.Entry<Path, T>> getDirectoryEntryPages(Path dir) throws IOException {
+        T dirEntry = getEntry(dir);
+
+        if (!isFolder(dirEntry)) {
+            throw new NotDirectoryException("dir: " + dir);
+        }
+
+        return getDirectoryEntryPages(dirEntry, dir).map(child -> Map.entry(dir.resolve(getFilenameString(child)), child));
+    }
+
     /**
      * common process
      *
@@ -198,6 +298,18 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
 
     @Override
     public final void delete(Path path) throws IOException {
+        checkRemovable(path);
+
+        removeEntry(path);
+    }
+
+    /**
+     * common process
+     *
+     * @throws DirectoryNotEmptyException when the path is a folder having children
+     * @see #delete(Path)
+     */
+    protected void checkRemovable(Path path) throws IOException {
         T entry = getEntry(path);
 
         if (isFolder(entry)) {
@@ -205,8 +317,6 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
                 throw new DirectoryNotEmptyException("dir : " + path);
             }
         }
-
-        removeEntry(path);
     }
 
     /**
@@ -261,9 +371,10 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
     protected abstract T copyEntry(T sourceEntry, T targetParentEntry, Path source, Path target, Set<CopyOption> options) throws IOException;
 
     /**
-     * common process
+     * common process, a folder is copied as an empty folder by the java spec.
      *
      * @see #copyEntry(Object, Object, Path, Path, Set)
+     * @see #copyTree(Path, Path, Set, int, int)
      */
     protected void copyEntry(Path source, Path target, Set<CopyOption> options) throws IOException {
         T sourceEntry = getEntry(source);
@@ -271,11 +382,129 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
         if (!isFolder(sourceEntry)) {
             copyEntry(sourceEntry, targetParentEntry, source, target, options);
         } else {
-            // TODO java spec. allows empty folder
-            throw new UnsupportedOperationException("source can not be a folder: " + source);
+            createDirectoryEntry(target);
         }
     }
 
+    /**
+     * Copies a folder with all descendants.
+     * {@link #copyFolderEntry(Object, Object, Path, Path, Set)} is tried first, otherwise
+     * folders are created first, then files are copied concurrently.
+     *
+     * @param parallelism max number of files copied concurrently
+     * @param maxCopiesPerSecond max number of files started to copy in a second, 0 or less means unlimited
+     * @throws FileAlreadyExistsException the target exists
+     * @throws IOException the target is in the source, the copy would never end
+     */
+    public void copyTree(Path source, Path target, Set<CopyOption> options, int parallelism, int maxCopiesPerSecond) throws IOException {
+        T sourceEntry = getEntry(source);
+        if (!isFolder(sourceEntry)) {
+            copy(source, target, options);
+            return;
+        }
+        if (target.toAbsolutePath().startsWith(source.toAbsolutePath())) {
+            throw new IOException("target is in the source: " + source + " -> " + target);
+        }
+        try {
+            if (exists(getEntry(target))) {
+                throw new FileAlreadyExistsException("path: " + target);
+            }
+        } catch (NoSuchFileException e) {
+            logger.log(Level.DEBUG, "copyTree: cause target not found, " + e.getMessage());
+        }
+
+        try {
+            copyFolderEntry(source, target, options);
+            logger.log(Level.DEBUG, "copyTree: copied by the driver: " + source + " -> " + target);
+            return;
+        } catch (UnsupportedOperationException e) {
+            logger.log(Level.DEBUG, "copyTree: copy one by one: " + source + " -> " + target);
+        }
+
+        // folders first, parents before children
+        Map<Path, Path> files = new LinkedHashMap<>();
+        Deque<Path> folders = new ArrayDeque<>();
+        folders.add(source);
+        while (!folders.isEmpty()) {
+            Path folder = folders.poll();
+            Path targetFolder = target.resolve(source.relativize(folder).toString());
+            createDirectoryEntry(targetFolder);
+            for (Path child : getDirectoryEntries(folder, true)) {
+                if (isFolder(getEntry(child))) {
+                    folders.add(child);
+                } else {
+                    files.put(child, targetFolder.resolve(child.getFileName().toString()));
+                }
+            }
+        }
+
+        long interval = maxCopiesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxCopiesPerSecond : 0;
+        AtomicLong next = new AtomicLong(System.nanoTime());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "copyTree");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            files.forEach((from, to) -> futures.add(executor.submit(() -> {
+                if (interval > 0) {
+                    long slot = next.getAndUpdate(n -> Math.max(n, System.nanoTime()) + interval);
+                    long wait = slot - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+                copyEntry(from, to, options);
+                return null;
+            })));
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    IOException cause = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            logger.log(Level.DEBUG, "copyTree: " + source + " -> " + target + ", files: " + files.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("copyTree interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * implement driver depends code if your api copies a folder recursively on the server side.
+     *
+     * @return null means that copy is async, after process like cache by your self.
+     * @throws UnsupportedOperationException by default, files are copied one by one
+     * @see #copyTree(Path, Path, Set, int, int)
+     */
+    protected T copyFolderEntry(T sourceEntry, T targetParentEntry, Path source, Path target, Set<CopyOption> options) throws IOException {
+        throw new UnsupportedOperationException("copyFolderEntry");
+    }
+
+    /**
+     * common process
+     *
+     * @see #copyFolderEntry(Object, Object, Path, Path, Set)
+     */
+    protected void copyFolderEntry(Path source, Path target, Set<CopyOption> options) throws IOException {
+        T sourceEntry = getEntry(source);
+        T targetParentEntry = getEntry(target.toAbsolutePath().getParent());
+        copyFolderEntry(sourceEntry, targetParentEntry, source, target, options);
+    }
+
     @Override
     public final void move(Path source, Path target, Set<CopyOption> options) throws IOException {
         try {
@@ -396,6 +625,99 @@ public abstract class ExtendedFileSystemDriver<T> extends ExtendedFileSystemDriv
         }
     }
 
+    /**
+     * Executes operations in bulk.
+     * {@link #batchEntries(List)} is tried first, otherwise operations are executed in parallel
+     * level by level, operations on deeper sources first, so children are processed before parents.
+     * the batch stops after a level any operation failed.
+     *
+     * @param parallelism max number of operations executed concurrently
+     * @throws IOException the first failure, others are suppressed into it
+     */
+    public void batch(List<BatchOperation> operations, int parallelism) throws IOException {
+        if (batchEntries(operations)) {
+            logger.log(Level.DEBUG, "batch: executed by the driver: " + operations.size());
+            batchedEntries(operations);
+            return;
+        }
+
+        Map<Integer, List<BatchOperation>> levels = new TreeMap<>(Comparator.reverseOrder());
+        for (BatchOperation operation : operations) {
+            levels.computeIfAbsent(operation.getSource().toAbsolutePath().getNameCount(), k -> new ArrayList<>()).add(operation);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (List<BatchOperation> level : levels.values()) {
+                List<Future<Runnable>> futures = new ArrayList<>(level.size());
+                for (BatchOperation operation : level) {
+                    futures.add(executor.submit(() -> executeBatchOperation(operation)));
+                }
+                IOException failure = null;
+                List<Runnable> commits = new ArrayList<>(level.size());
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        Runnable commit = futures.get(i).get();
+                        if (commit != null) {
+                            commits.add(commit);
+                        }
+                    } catch (ExecutionException e) {
+                        IOException cause = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                : new IOException(level.get(i).toString(), e.getCause());
+                        if (failure == null) {
+                            failure = cause;
+                        } else {
+                            failure.addSuppressed(cause);
+                        }
+                    }
+                }
+                commits.forEach(Runnable::run);
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("batch interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * implement driver depends code if your api has a batch endpoint.
+     *
+     * @return false means not supported, then operations are executed one by one
+     * @see #batch(List, int)
+     */
+    protected boolean batchEntries(List<BatchOperation> operations) throws IOException {
+        return false;
+    }
+
+    /**
+     * called after {@link #batchEntries(List)} executed operations, e.g. for updating caches
+     */
+    protected void batchedEntries(List<BatchOperation> operations) {
+    }
+
+    /**
+     * executes an operation of a batch.
+     *
+     * @return an action applied after all operations of the same level are executed, nullable
+     * @see #batch(List, int)
+     */
+    protected Runnable executeBatchOperation(BatchOperation operation) throws IOException {
+        switch (operation.getKind()) {
+        case DELETE -> delete(operation.getSource());
+        case MOVE -> move(operation.getSource(), operation.getTarget(), operation.getOptions());
+        case COPY -> copy(operation.getSource(), operation.getTarget(), operation.getOptions());
+        }
+        return null;
+    }
+
     /** @see #getPathMetadata(Path) */
     @Override
     protected final Object getPathMetadataImpl(Path path) throws IOException {
@@ -88,6 +88,24 @@ public abstract class ExtendedFileSystemDriverBase extends UnixLikeFileSystemDri
         return map.containsKey(key) && (map.get(key) == null || (boolean) map.get(key));
     }
 
+    /** utility for env (value is a number or a string of a number) */
+    @SuppressWarnings("unchecked")
+    protected long getLong(String key, long defaultValue) {
+        return getLong(key, (Map<String, Object>) env, defaultValue);
+    }
+
+    /** utility for env (value is a number or a string of a number) */
+    static long getLong(String key, Map<String, Object> map, long defaultValue) {
+        Object value = map.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value != null) {
+            return Long.parseLong(value.toString());
+        } else {
+            return defaultValue;
+        }
+    }
+
     /** monitor the file is downloading or not for fuse */
     private final UploadMonitor<DummyFileAttributes> uploadMonitor;
 
@@ -117,6 +117,11 @@ public abstract class FileSystemDriverBase implements FileSystemDriver {
         return path.toAbsolutePath().equals(path2.toAbsolutePath());
     }
 
+    /** converts metadata into attributes without a path */
+    protected final <A extends BasicFileAttributes> A getFileAttributes(Class<A> type, Object metadata) throws IOException {
+        return attributesFactory.getFileAttributes(type, metadata);
+    }
+
     /** must call this from sub class */
     protected FileAttributesProvider getProvider(String name, Object metadata) throws IOException {
         return attributesFactory.getProvider(name, metadata);
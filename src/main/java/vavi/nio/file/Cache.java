@@ -6,31 +6,188 @@
 
 package vavi.nio.file;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.ToLongBiFunction;
+
+import static java.lang.System.getLogger;
 
 
 /**
  * Cache.
+ * <p>
+ * unbounded by default, set {@link #setEvictionPolicy(EvictionPolicy)} for a fixed memory ceiling.
+ * </p>
+ * <p>
+ * entries never expire by default, set {@link #setExpiry(long, long)} for bounding staleness.
+ * </p>
+ * <p>
+ * entries, children lists and their metadata are stored in one {@link PathTrie} by default,
+ * so moving or invalidating a folder relinks one node instead of rewriting every descendant.
+ * set {@link #setBackend(CacheBackend)} for another storage.
+ * </p>
+ * <p>
+ * reverse queries scan all entries by default, set {@link #setKeyExtractor(Function)}
+ * for resolving a driver specific key (e.g. file id) into a path in O(1).
+ * </p>
+ * <p>
+ * paths not found are not remembered by default, set {@link #setNegativeCache(int, long)}
+ * for serving repeated misses without remote queries.
+ * </p>
+ * <p>
+ * {@link #save(Path, Codec)} and {@link #load(Path, Codec, FileSystem)} make a warm restart,
+ * loaded values are {@link Freshness#STALE} for being revalidated lazily.
+ * </p>
  *
  * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (umjammer)
  * @version 0.00 2017/03/16 umjammer initial version <br>
  */
 public abstract class Cache<T> {
 
+    private static final Logger logger = getLogger(Cache.class.getName());
+
+    /** all maps below belong to this */
+    private CacheBackend backend;
+
     /** <{@link Path}, {@link T}> */
-    protected Map<Path, T> entryCache = new ConcurrentHashMap<>(); // TODO refresh
+    protected Map<Path, T> entryCache;
+
+    /** <{@link Path}, children names> */
+    private Map<Path, Children> folderNames;
+
+    /** <{@link Path}, {@link List<Path>}> a view of children lists, a gotten list is a snapshot */
+    protected Map<Path, List<Path>> folderCache = new FolderView();
+
+    /** <{@link Path}, loaded time in millis> */
+    private Map<Path, Long> entryLoadedTimes;
+
+    /** <{@link Path}, loaded time in millis> */
+    private Map<Path, Long> folderLoadedTimes;
+
+    /** <{@link Path}, version token of the children list> */
+    private Map<Path, Object> folderVersions;
+
+    /** uses {@link PathTrie} */
+    public Cache() {
+        setBackend(new PathTrie());
+    }
+
+    /**
+     * Sets a storage, values already cached are copied into it.
+     * this should be set before the cache is used concurrently.
+     */
+    public final synchronized void setBackend(CacheBackend backend) {
+        Map<Path, T> oldEntries = entryCache;
+        Map<Path, Children> oldFolderNames = folderNames;
+        Map<Path, Long> oldEntryLoadedTimes = entryLoadedTimes;
+        Map<Path, Long> oldFolderLoadedTimes = folderLoadedTimes;
+        Map<Path, Object> oldFolderVersions = folderVersions;
+        this.entryCache = backend.newMap();
+        this.folderNames = backend.newMap();
+        this.entryLoadedTimes = backend.newMap();
+        this.folderLoadedTimes = backend.newMap();
+        this.folderVersions = backend.newMap();
+        this.backend = backend;
+        if (oldEntries != null) {
+            entryCache.putAll(oldEntries);
+            folderNames.putAll(oldFolderNames);
+            entryLoadedTimes.putAll(oldEntryLoadedTimes);
+            folderLoadedTimes.putAll(oldFolderLoadedTimes);
+            folderVersions.putAll(oldFolderVersions);
+        }
+    }
+
+    /** translates children names into paths */
+    private class FolderView extends AbstractMap<Path, List<Path>> {
+
+        @Override
+        public List<Path> get(Object key) {
+            if (!(key instanceof Path)) {
+                return null;
+            }
+            Children children = folderNames.get(key);
+            return children != null ? children.paths((Path) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return folderNames.containsKey(key);
+        }
+
+        @Override
+        public List<Path> put(Path key, List<Path> value) {
+            List<Path> old = get(key);
+            folderNames.put(key, new Children(value.stream().map(p -> p.getFileName().toString()).toList()));
+            return old;
+        }
+
+        @Override
+        public List<Path> remove(Object key) {
+            List<Path> old = get(key);
+            folderNames.remove(key);
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return folderNames.size();
+        }
+
+        @Override
+        public Set<Entry<Path, List<Path>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Path, List<Path>>> iterator() {
+                    Iterator<Entry<Path, Children>> i = folderNames.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return i.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Path, List<Path>> next() {
+                            Entry<Path, Children> e = i.next();
+                            return new SimpleImmutableEntry<>(e.getKey(), e.getValue().paths(e.getKey()));
+                        }
+
+                        @Override
+                        public void remove() {
+                            i.remove();
+                        }
+                    };
+                }
 
-    /** <{@link Path}, {@link List<Path>}> */
-    protected Map<Path, List<Path>> folderCache = new ConcurrentHashMap<>(); // TODO refresh
+                @Override
+                public int size() {
+                    return folderNames.size();
+                }
+            };
+        }
+    }
 
     /** allow duplicated name in the same directory or not, e.g. google drive allows it. */
     private boolean allowDuplicatedName = false;
@@ -40,6 +197,286 @@ public abstract class Cache<T> {
         this.allowDuplicatedName = allowDuplicatedName;
     }
 
+    /** rough size in bytes of an entry excluding a path */
+    public static final long DEFAULT_ENTRY_WEIGHT = 256;
+
+    /** null means unbounded */
+    private volatile EvictionPolicy<Path> evictionPolicy;
+
+    /** estimates a memory size in bytes of an entry */
+    private ToLongBiFunction<Path, T> weigher = (path, entry) -> DEFAULT_ENTRY_WEIGHT + 2L * path.toString().length();
+
+    /** */
+    protected final CacheStats stats = new CacheStats();
+
+    /**
+     * Sets an eviction policy, entries already cached are registered to the policy.
+     *
+     * @param evictionPolicy null means unbounded
+     */
+    public void setEvictionPolicy(EvictionPolicy<Path> evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        if (evictionPolicy != null) {
+            entryCache.forEach((path, entry) -> evictionPolicy.put(path, weigher.applyAsLong(path, entry)));
+            evict();
+        }
+    }
+
+    /** sets an estimator of a memory size in bytes of an entry for the eviction policy */
+    public void setWeigher(ToLongBiFunction<Path, T> weigher) {
+        this.weigher = weigher;
+    }
+
+    /** freshness of a cached value */
+    public enum Freshness {
+        /** use it */
+        FRESH,
+        /** use it, but should be refreshed in background */
+        STALE,
+        /** should be reloaded before using it */
+        EXPIRED
+    }
+
+    /** 0 or less means never */
+    private volatile long softTtl;
+
+    /** 0 or less means never */
+    private volatile long hardTtl;
+
+    /**
+     * Sets time to live of entries and children lists.
+     *
+     * @param softTtl millis, after this a value is {@link Freshness#STALE}, 0 or less means never
+     * @param hardTtl millis, after this a value is {@link Freshness#EXPIRED}, 0 or less means never
+     */
+    public void setExpiry(long softTtl, long hardTtl) {
+        this.softTtl = softTtl;
+        this.hardTtl = hardTtl;
+    }
+
+    /** freshness of the entry */
+    public Freshness getFileFreshness(Path path) {
+        return freshness(entryLoadedTimes.get(path.toAbsolutePath()));
+    }
+
+    /** freshness of the children list */
+    public Freshness getFolderFreshness(Path path) {
+        return freshness(folderLoadedTimes.get(path.toAbsolutePath()));
+    }
+
+    /** Marks the entry as loaded now, e.g. the remote answered it's not changed. */
+    public void markRevalidated(Path path) {
+        entryLoadedTimes.computeIfPresent(path.toAbsolutePath(), (k, v) -> System.currentTimeMillis());
+    }
+
+    /** Marks the children list as loaded now, e.g. the remote answered it's not changed. */
+    public void markFolderRevalidated(Path path) {
+        folderLoadedTimes.computeIfPresent(path.toAbsolutePath(), (k, v) -> System.currentTimeMillis());
+    }
+
+    /** Marks all children lists as expired, e.g. a change is notified for a place not known. */
+    public void expireFolders() {
+        new ArrayList<>(folderLoadedTimes.keySet()).forEach(p -> folderLoadedTimes.computeIfPresent(p, (k, v) -> EXPIRE));
+    }
+
+    /**
+     * Attaches a version token (e.g. an etag, a change cursor or mtime) to the children list,
+     * a token is dropped with the list or when the list is put again.
+     *
+     * @param version null removes it
+     */
+    public void setFolderVersion(Path path, Object version) {
+        if (version == null) {
+            folderVersions.remove(path.toAbsolutePath());
+        } else if (folderNames.containsKey(path.toAbsolutePath())) {
+            folderVersions.put(path.toAbsolutePath(), version);
+        }
+    }
+
+    /** @return null when no token is attached */
+    public Object getFolderVersion(Path path) {
+        return folderVersions.get(path.toAbsolutePath());
+    }
+
+    /** loaded time meaning the value should be revalidated */
+    private static final long REVALIDATE = 0;
+
+    /** loaded time meaning the value must be revalidated before it's used */
+    private static final long EXPIRE = 1;
+
+    /** @param loaded null means the time is unknown, it's treated as fresh */
+    private Freshness freshness(Long loaded) {
+        if (loaded == null) {
+            return Freshness.FRESH;
+        } else if (loaded == REVALIDATE) {
+            return Freshness.STALE;
+        } else if (loaded == EXPIRE) {
+            return Freshness.EXPIRED;
+        }
+        long age = System.currentTimeMillis() - loaded;
+        if (hardTtl > 0 && age > hardTtl) {
+            return Freshness.EXPIRED;
+        } else if (softTtl > 0 && age > softTtl) {
+            return Freshness.STALE;
+        } else {
+            return Freshness.FRESH;
+        }
+    }
+
+    /** null means no reverse index */
+    private volatile Function<T, ?> keyExtractor;
+
+    /** <key made by {@link #keyExtractor}, {@link Path}> */
+    private final Map<Object, Path> reverseIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Sets a key extractor for the reverse index, entries already cached are indexed.
+     * the key must be unique in the cache and must not be changed while an entry is cached.
+     *
+     * @param keyExtractor returns e.g. file id, null result means the entry is not indexed.
+     *                     null means no reverse index
+     * @see #getEntryByKey(Object)
+     */
+    public void setKeyExtractor(Function<T, ?> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        reverseIndex.clear();
+        if (keyExtractor != null) {
+            entryCache.forEach((path, entry) -> index(path, null, entry));
+        }
+    }
+
+    /** maintains the reverse index */
+    private void index(Path path, T oldEntry, T newEntry) {
+        Function<T, ?> extractor = keyExtractor;
+        if (extractor == null) {
+            return;
+        }
+        if (oldEntry != null) {
+            Object key = extractor.apply(oldEntry);
+            if (key != null) {
+                reverseIndex.remove(key, path);
+            }
+        }
+        if (newEntry != null) {
+            Object key = extractor.apply(newEntry);
+            if (key != null) {
+                reverseIndex.put(key, path);
+            }
+        }
+    }
+
+    /** null means disabled */
+    private volatile NegativeCache negativeCache;
+
+    /**
+     * Enables remembering paths not found.
+     * a miss is forgotten when the path, or its parent is added or listed, or ttl passed.
+     *
+     * @param maxEntries max number of paths remembered
+     * @param ttl millis, 0 or less means disabled
+     */
+    public void setNegativeCache(int maxEntries, long ttl) {
+        this.negativeCache = ttl > 0 ? new NegativeCache(maxEntries, ttl) : null;
+    }
+
+    /** The path is remembered as not found or not. */
+    public boolean isKnownMissing(Path path) {
+        NegativeCache nc = negativeCache;
+        if (nc != null && nc.contains(path.toAbsolutePath())) {
+            stats.recordNegativeHit();
+            return true;
+        }
+        return false;
+    }
+
+    /** Remembers the path as not found. */
+    public void putMissing(Path path) {
+        NegativeCache nc = negativeCache;
+        if (nc != null) {
+            nc.put(path.toAbsolutePath());
+        }
+    }
+
+    /** Forgets misses of the path and the names in it, e.g. for watch events. */
+    public void clearMissing(Path path) {
+        NegativeCache nc = negativeCache;
+        if (nc != null) {
+            nc.invalidate(path.toAbsolutePath());
+        }
+    }
+
+    /** Forgets all misses, e.g. for watch events not located. */
+    public void clearMissing() {
+        NegativeCache nc = negativeCache;
+        if (nc != null) {
+            nc.clear();
+        }
+    }
+
+    /** hit, miss and eviction counters */
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    /** number of cached entries */
+    public int getEntryCount() {
+        return entryCache.size();
+    }
+
+    /** number of cached children lists */
+    public int getFolderCount() {
+        return folderNames.size();
+    }
+
+    /** number of paths remembered as not found */
+    public int getMissingCount() {
+        NegativeCache nc = negativeCache;
+        return nc != null ? nc.size() : 0;
+    }
+
+    /** @return total weight by the eviction policy, -1 when unbounded */
+    public long getWeight() {
+        EvictionPolicy<Path> policy = evictionPolicy;
+        return policy != null ? policy.weight() : -1;
+    }
+
+    /** registers the entry to the eviction policy and evicts if over the bounds */
+    private void loaded(Path path, T entry) {
+        entryLoadedTimes.put(path, System.currentTimeMillis());
+        clearMissing(path);
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy != null) {
+            policy.put(path, weigher.applyAsLong(path, entry));
+            evict();
+        }
+    }
+
+    /**
+     * Evicts entries while the policy is over the bounds.
+     * an evicted entry takes its own children list and its parent's children list with it,
+     * so that a children list never refers an evicted entry.
+     */
+    private void evict() {
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy == null) {
+            return;
+        }
+        Path victim;
+        while ((victim = policy.victim()) != null) {
+            index(victim, entryCache.remove(victim), null);
+            entryLoadedTimes.remove(victim);
+            folderNames.remove(victim);
+            folderLoadedTimes.remove(victim);
+            folderVersions.remove(victim);
+            if (victim.getParent() != null) {
+                folderNames.remove(victim.getParent());
+                folderLoadedTimes.remove(victim.getParent());
+                folderVersions.remove(victim.getParent());
+            }
+            stats.recordEviction();
+        }
+    }
+
     /** There is metadata or not. */
     public boolean containsFile(Path path) {
         return entryCache.containsKey(path.toAbsolutePath());
@@ -47,18 +484,31 @@ public abstract class Cache<T> {
 
     /** raw operation for the cache */
     public T getFile(Path path) {
+        T entry = entryCache.get(path.toAbsolutePath());
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (entry != null && policy != null) {
+            policy.touch(path.toAbsolutePath());
+        }
+        return entry;
+    }
+
+    /** raw operation for the cache, a look ahead not counted as a use by the eviction policy */
+    public T peekFile(Path path) {
         return entryCache.get(path.toAbsolutePath());
     }
 
     /** raw operation for the cache */
     public T putFile(Path path, T entry) {
 //System.err.println("CACHE.0: " + path);
-        return entryCache.put(path.toAbsolutePath(), entry);
+        T old = entryCache.put(path.toAbsolutePath(), entry);
+        index(path.toAbsolutePath(), old, entry);
+        loaded(path.toAbsolutePath(), entry);
+        return old;
     }
 
     /** There are children's metadata or not. */
     public boolean containsFolder(Path path) {
-        return folderCache.containsKey(path.toAbsolutePath());
+        return folderNames.containsKey(path.toAbsolutePath());
     }
 
     /** Gets children path. */
@@ -70,55 +520,125 @@ public abstract class Cache<T> {
      * @return -1 if path does not exist
      */
     public int getChildCount(Path path) {
-        return containsFolder(path) ? getFolder(path).size() : -1;
+        Children children = folderNames.get(path.toAbsolutePath());
+        return children != null ? children.size() : -1;
+    }
+
+    /** The children list of the parent names the path or not, false when the list is not cached. O(1) */
+    public boolean containsChild(Path parent, Path path) {
+        Children children = folderNames.get(parent.toAbsolutePath());
+        return children != null && children.contains(path.getFileName().toString());
     }
 
     /** raw operation for the folder cache */
     public List<Path> putFolder(Path path, List<Path> children) {
-        return folderCache.put(path.toAbsolutePath(), children.stream().map(Path::toAbsolutePath).collect(Collectors.toList()));
+        folderLoadedTimes.put(path.toAbsolutePath(), System.currentTimeMillis());
+        folderVersions.remove(path.toAbsolutePath());
+        clearMissing(path);
+        return folderCache.put(path.toAbsolutePath(), children);
     }
 
     /** parent folder cache will be modified */
     public void addEntry(Path path, T entry) {
 //System.err.println("CACHE.1: " + path);
-        entryCache.put(path.toAbsolutePath(), entry);
+        index(path.toAbsolutePath(), entryCache.put(path.toAbsolutePath(), entry), entry);
         // parent
         Path parentPath = path.toAbsolutePath().getParent();
-        List<Path> bros = folderCache.computeIfAbsent(parentPath.toAbsolutePath(), k -> new ArrayList<>());
-        if (!bros.contains(path.toAbsolutePath()) || allowDuplicatedName) {
-//System.err.println("DIR CACHE.1: " + path);
-            bros.add(path.toAbsolutePath());
+        String name = path.getFileName().toString();
+        folderNames.computeIfAbsent(parentPath, k -> new Children()).add(name, allowDuplicatedName);
+        loaded(path.toAbsolutePath(), entry);
+    }
+
+    /**
+     * Puts the entry found, the name is added to the parent's children list only when the list exists,
+     * so that a partial list is never made.
+     */
+    public void putEntry(Path path, T entry) {
+        putFile(path, entry);
+        Path parentPath = path.toAbsolutePath().getParent();
+        Children bros = folderNames.get(parentPath);
+        if (bros != null) {
+            bros.add(path.getFileName().toString(), false);
         }
     }
 
     /** parent folder cache will be modified */
     public void removeEntry(Path path) {
-        entryCache.remove(path.toAbsolutePath());
+        index(path.toAbsolutePath(), entryCache.remove(path.toAbsolutePath()), null);
+        entryLoadedTimes.remove(path.toAbsolutePath());
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy != null) {
+            policy.remove(path.toAbsolutePath());
+        }
         // parent
         Path parentPath = path.toAbsolutePath().getParent();
-        List<Path> bros = folderCache.get(parentPath.toAbsolutePath());
+        Children bros = folderNames.get(parentPath);
         if (bros != null) {
-            bros.remove(path.toAbsolutePath());
+            bros.remove(path.getFileName().toString());
         }
     }
 
-    /** for folder */
+    /** for folder, all descendants are moved with it */
     public void moveEntry(Path source, Path target, T entry) {
-        List<Path> children = getFolder(source);
-        if (children != null) {
-            folderCache.remove(source.toAbsolutePath());
+        Path s = source.toAbsolutePath();
+        Path t = target.toAbsolutePath();
+        invalidateTree(t); // replaced
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy != null || keyExtractor != null) {
+            backend.forEachUnder(entryCache, s, (path, e) -> {
+                Path moved = t.resolve(s.relativize(path));
+                if (policy != null) {
+                    policy.remove(path);
+                    policy.put(moved, weigher.applyAsLong(moved, e));
+                }
+                index(path, e, null);
+                index(moved, null, e);
+            });
+        }
+        backend.move(s, t);
+        // parent
+        Children bros = folderNames.get(s.getParent());
+        if (bros != null) {
+            bros.remove(s.getFileName().toString());
         }
-        removeEntry(source);
-        addEntry(target, entry);
-        if (children != null) {
-            putFolder(target, changeParent(children, target));
-//getFolder(target).forEach(System.err::println);
+        addEntry(t, entry);
+    }
+
+    /** Drops the entry only, it will be reloaded when it's queried, children lists are kept. */
+    public void invalidateEntry(Path path) {
+        Path p = path.toAbsolutePath();
+        index(p, entryCache.remove(p), null);
+        entryLoadedTimes.remove(p);
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy != null) {
+            policy.remove(p);
         }
     }
 
-    /** move folder */
-    private List<Path> changeParent(List<Path> children, Path parent) {
-        return children.stream().map(p -> parent.resolve(p.getFileName())).collect(Collectors.toList());
+    /** Drops the children list only, it will be reloaded when it's queried. */
+    public void invalidateFolder(Path path) {
+        folderNames.remove(path.toAbsolutePath());
+        folderLoadedTimes.remove(path.toAbsolutePath());
+        folderVersions.remove(path.toAbsolutePath());
+    }
+
+    /**
+     * Drops entries and children lists under the path including the path itself.
+     * the parent's children list is kept, so dropped entries will be reloaded when they are queried.
+     */
+    public void invalidateTree(Path path) {
+        Path p = path.toAbsolutePath();
+        EvictionPolicy<Path> policy = evictionPolicy;
+        if (policy != null || keyExtractor != null) {
+            backend.forEachUnder(entryCache, p, (k, v) -> {
+                if (policy != null) {
+                    policy.remove(k);
+                }
+                index(k, v, null);
+            });
+        }
+        backend.remove(p);
+        clearMissing(p);
     }
 
     /**
@@ -142,11 +662,20 @@ public abstract class Cache<T> {
 
     /**
      * query for opposite direction
-     * uses {@link Object#equals(Object)} for comparison
+     * uses {@link Object#equals(Object)} for comparison,
+     * the reverse index is used if {@link #setKeyExtractor(Function)} is set.
      *
      * @throws NoSuchElementException when not found
      */
     public Path getEntry(T target) {
+        Function<T, ?> extractor = keyExtractor;
+        Object key = extractor != null ? extractor.apply(target) : null;
+        if (key != null) {
+            Path path = reverseIndex.get(key);
+            if (path != null && target.equals(entryCache.get(path))) {
+                return path;
+            }
+        }
         for (Map.Entry<Path, T> e : entryCache.entrySet()) {
             if (e.getValue().equals(target)) {
                 return e.getKey();
@@ -155,8 +684,27 @@ public abstract class Cache<T> {
         throw new NoSuchElementException(target.toString());
     }
 
+    /**
+     * query for opposite direction in O(1)
+     *
+     * @param key made by the key extractor
+     * @throws NoSuchElementException when not found
+     * @throws IllegalStateException {@link #setKeyExtractor(Function)} is not set
+     */
+    public Path getEntryByKey(Object key) {
+        if (keyExtractor == null) {
+            throw new IllegalStateException("no key extractor");
+        }
+        Path path = reverseIndex.get(key);
+        if (path == null) {
+            throw new NoSuchElementException(String.valueOf(key));
+        }
+        return path;
+    }
+
     /**
      * query for opposite direction
+     * this scans all entries, use {@link #getEntryByKey(Object)} for frequent queries.
      *
      * @param query is used for comparison
      * @throws NoSuchElementException when not found
@@ -169,4 +717,115 @@ public abstract class Cache<T> {
         }
         throw new NoSuchElementException(query.toString());
     }
+
+    /**
+     * Encodes and decodes an entry for snapshots.
+     *
+     * @param <T> entry type
+     */
+    public interface Codec<T> {
+
+        /** */
+        byte[] encode(T entry) throws IOException;
+
+        /** */
+        T decode(byte[] bytes) throws IOException;
+    }
+
+    /** snapshot file header "VNFC" */
+    private static final int SNAPSHOT_MAGIC = 0x564e4643;
+
+    /** snapshot format version */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /** snapshot record types */
+    private static final byte SNAPSHOT_END = 0, SNAPSHOT_ENTRY = 1, SNAPSHOT_FOLDER = 2;
+
+    /**
+     * Saves entries and children lists into the file.
+     * the file is replaced atomically, concurrent modifications might be or not be included.
+     */
+    public void save(Path file, Codec<T> codec) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            for (Map.Entry<Path, T> e : entryCache.entrySet()) {
+                out.writeByte(SNAPSHOT_ENTRY);
+                writeString(out, e.getKey().toString());
+                byte[] bytes = codec.encode(e.getValue());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (Map.Entry<Path, Children> e : folderNames.entrySet()) {
+                List<String> names = e.getValue().snapshot();
+                out.writeByte(SNAPSHOT_FOLDER);
+                writeString(out, e.getKey().toString());
+                out.writeInt(names.size());
+                for (String name : names) {
+                    writeString(out, name);
+                }
+            }
+            out.writeByte(SNAPSHOT_END);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads entries and children lists from the file saved by {@link #save(Path, Codec)}.
+     * loaded values are marked as {@link Freshness#STALE}.
+     *
+     * @param fs paths in the snapshot are parsed by this
+     * @throws IOException the file is not a snapshot
+     */
+    public void load(Path file, Codec<T> codec, FileSystem fs) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 8 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("not a cache snapshot: " + file);
+            }
+            int entries = 0, folders = 0;
+            byte type;
+            while ((type = buffer.get()) != SNAPSHOT_END) {
+                Path path = fs.getPath(readString(buffer));
+                switch (type) {
+                case SNAPSHOT_ENTRY -> {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    putFile(path, codec.decode(bytes));
+                    entryLoadedTimes.computeIfPresent(path.toAbsolutePath(), (k, v) -> REVALIDATE); // might be evicted just now
+                    entries++;
+                }
+                case SNAPSHOT_FOLDER -> {
+                    int n = buffer.getInt();
+                    Children children = new Children();
+                    for (int i = 0; i < n; i++) {
+                        children.add(readString(buffer), true);
+                    }
+                    folderNames.put(path, children);
+                    folderLoadedTimes.put(path, REVALIDATE);
+                    folders++;
+                }
+                default -> throw new IOException("broken cache snapshot: " + file);
+                }
+            }
+            logger.log(Level.DEBUG, "snapshot loaded: " + file + ", entries: " + entries + ", folders: " + folders);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("broken cache snapshot: " + file, e);
+        }
+    }
 }
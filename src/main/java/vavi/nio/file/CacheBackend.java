@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+
+/**
+ * CacheBackend.
+ * <p>
+ * Storage of {@link Cache}, creates maps for entries, children lists and their metadata.
+ * all maps created by a backend are moved and removed together by a subtree.
+ * </p>
+ * <p>
+ * maps must be thread safe and keys are absolute paths.
+ * a backend may drop values by itself (e.g. size or time based eviction of a map),
+ * {@link Cache} treats a dropped value as a miss.
+ * </p>
+ * <p>
+ * only in-heap maps storing values by reference are supported,
+ * because {@link Cache} mutates some values (children lists) in place after putting them.
+ * an off-heap store or a store-by-value cache, e.g. a JSR-107 cache with store by value, can not be plugged in.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ * @see PathTrie default
+ * @see MapCacheBackend
+ */
+public interface CacheBackend {
+
+    /** creates a map belongs to this backend */
+    <V> Map<Path, V> newMap();
+
+    /**
+     * visits values in the subtree including the path itself
+     *
+     * @param map created by {@link #newMap()} of this backend
+     */
+    <V> void forEachUnder(Map<Path, V> map, Path path, BiConsumer<Path, V> action);
+
+    /**
+     * Relinks a subtree for all maps, an existing subtree at the target is dropped.
+     * after this, for all maps, each key under the source including the source itself is
+     * under the target at the same relative path with the same value, no key remains under the source,
+     * and no key under the target which existed before remains.
+     * moves and removes must be serialized with each other.
+     * {@link Cache} never moves a path to a root, under itself or to its ancestor.
+     *
+     * @throws IllegalArgumentException may be thrown for a move {@link Cache} never does
+     */
+    void move(Path source, Path target);
+
+    /** Drops a subtree for all maps, including the path itself. */
+    void remove(Path path);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * CacheLoadEvent.
+ * <p>
+ * A JFR event for a cache miss loaded from the remote, or a cached value revalidated by the remote.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+@Name("vavi.nio.file.CacheLoad")
+@Label("Cache Load")
+@Category({"vavi-nio-file", "Cache"})
+@Description("A cache miss loaded from the remote or a cached value revalidated")
+public class CacheLoadEvent extends Event {
+
+    /** "entry", "root", "folder" (a listing or a page of it) or "revalidate" */
+    @Label("Kind")
+    public String kind;
+
+    /** */
+    @Label("Path")
+    public String path;
+
+    /** false when not found or failed */
+    @Label("Success")
+    public boolean success;
+}
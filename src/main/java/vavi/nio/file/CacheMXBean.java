@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+/**
+ * CacheMXBean.
+ * <p>
+ * JMX view of a {@link Cache} and a file cache of a file system.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ * @see CacheMonitor
+ */
+public interface CacheMXBean {
+
+    /** */
+    long getHitCount();
+
+    /** */
+    long getMissCount();
+
+    /** */
+    long getNegativeHitCount();
+
+    /** */
+    double getHitRate();
+
+    /** */
+    long getLoadCount();
+
+    /** */
+    long getLoadFailureCount();
+
+    /** millis */
+    double getAverageLoadTime();
+
+    /** @see CacheStats#LOAD_LATENCY_BOUNDS */
+    long[] getLoadLatencyHistogram();
+
+    /** */
+    long getEvictionCount();
+
+    /** */
+    int getEntryCount();
+
+    /** */
+    int getFolderCount();
+
+    /** */
+    int getMissingCount();
+
+    /** -1 when unbounded */
+    long getWeight();
+
+    /** bytes of downloaded files, -1 when no file cache */
+    long getFileCacheBytes();
+}
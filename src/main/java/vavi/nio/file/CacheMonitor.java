@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * CacheMonitor.
+ * <p>
+ * Exports a {@link Cache} as a JMX MBean named "vavi.nio.file:type=Cache,name=...".
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class CacheMonitor implements CacheMXBean {
+
+    private static final Logger logger = getLogger(CacheMonitor.class.getName());
+
+    /** */
+    private final Cache<?> cache;
+
+    /** bytes of downloaded files */
+    private final LongSupplier fileCacheBytes;
+
+    /** null when not registered */
+    private ObjectName name;
+
+    /** @param fileCacheBytes returns -1 when no file cache */
+    public CacheMonitor(Cache<?> cache, LongSupplier fileCacheBytes) {
+        this.cache = cache;
+        this.fileCacheBytes = fileCacheBytes;
+    }
+
+    /**
+     * Registers this to the platform MBean server, failures are only logged.
+     *
+     * @param name identifies a file system
+     */
+    public synchronized void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("vavi.nio.file:type=Cache,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.name = objectName;
+            logger.log(Level.DEBUG, "registered: " + objectName);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "cache monitor is not registered: " + name, e);
+        }
+    }
+
+    /** */
+    public synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            logger.log(Level.DEBUG, "cache monitor is not unregistered: " + name, e);
+        }
+        name = null;
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.getStats().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.getStats().getMissCount();
+    }
+
+    @Override
+    public long getNegativeHitCount() {
+        return cache.getStats().getNegativeHitCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return cache.getStats().getHitRate();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return cache.getStats().getLoadCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return cache.getStats().getLoadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadTime() {
+        long loads = getLoadCount();
+        return loads == 0 ? Double.NaN : cache.getStats().getTotalLoadTime() / 1_000_000.0 / loads;
+    }
+
+    @Override
+    public long[] getLoadLatencyHistogram() {
+        return cache.getStats().getLoadLatencyHistogram();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.getStats().getEvictionCount();
+    }
+
+    @Override
+    public int getEntryCount() {
+        return cache.getEntryCount();
+    }
+
+    @Override
+    public int getFolderCount() {
+        return cache.getFolderCount();
+    }
+
+    @Override
+    public int getMissingCount() {
+        return cache.getMissingCount();
+    }
+
+    @Override
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    @Override
+    public long getFileCacheBytes() {
+        return fileCacheBytes.getAsLong();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * CacheStats.
+ * <p>
+ * Counters for {@link Cache}.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class CacheStats {
+
+    /** */
+    private final LongAdder hits = new LongAdder();
+
+    /** */
+    private final LongAdder misses = new LongAdder();
+
+    /** */
+    private final LongAdder evictions = new LongAdder();
+
+    /** misses served by the negative cache */
+    private final LongAdder negativeHits = new LongAdder();
+
+    /** */
+    private final LongAdder loads = new LongAdder();
+
+    /** */
+    private final LongAdder loadFailures = new LongAdder();
+
+    /** nanos */
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    /** upper bounds in millis of {@link #loadLatencies} buckets, the last bucket is unbounded */
+    public static final long[] LOAD_LATENCY_BOUNDS = {1, 10, 100, 1000, 10000};
+
+    /** load latency histogram */
+    private final LongAdder[] loadLatencies = new LongAdder[LOAD_LATENCY_BOUNDS.length + 1];
+
+    {
+        for (int i = 0; i < loadLatencies.length; i++) {
+            loadLatencies[i] = new LongAdder();
+        }
+    }
+
+    /** */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /** */
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /** */
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    /** */
+    public void recordNegativeHit() {
+        negativeHits.increment();
+    }
+
+    /**
+     * @param nanos time taken for loading from the remote
+     * @param success false when not found or failed
+     */
+    public void recordLoad(long nanos, boolean success) {
+        loads.increment();
+        if (!success) {
+            loadFailures.increment();
+        }
+        totalLoadTime.add(nanos);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int i = 0;
+        while (i < LOAD_LATENCY_BOUNDS.length && millis >= LOAD_LATENCY_BOUNDS[i]) {
+            i++;
+        }
+        loadLatencies[i].increment();
+    }
+
+    /** */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /** */
+    public long getNegativeHitCount() {
+        return negativeHits.sum();
+    }
+
+    /** */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /** */
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /** nanos */
+    public long getTotalLoadTime() {
+        return totalLoadTime.sum();
+    }
+
+    /** @return counts for each {@link #LOAD_LATENCY_BOUNDS} bucket, the last one is over the bounds */
+    public long[] getLoadLatencyHistogram() {
+        long[] histogram = new long[loadLatencies.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = loadLatencies[i].sum();
+        }
+        return histogram;
+    }
+
+    /** @return NaN when no request */
+    public double getHitRate() {
+        long h = getHitCount();
+        long total = h + getMissCount();
+        return total == 0 ? Double.NaN : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits: " + getHitCount() + ", misses: " + getMissCount() + ", evictions: " + getEvictionCount() + ", negativeHits: " + getNegativeHitCount() + ", loads: " + getLoadCount() + ", loadFailures: " + getLoadFailureCount() + "}";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Children.
+ * <p>
+ * Names in a folder for {@link Cache}, insertion ordered and hashed.
+ * add, remove and contains are O(1), snapshots are made once after each modification.
+ * a name can be added several times for the file systems allow duplicated names (e.g. google drive).
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+final class Children {
+
+    /** <name, count> insertion ordered, guarded by this */
+    private final Map<String, Integer> names = new LinkedHashMap<>();
+
+    /** total count, guarded by this */
+    private int size;
+
+    /** names, null when modified */
+    private volatile List<String> snapshot;
+
+    /** <parent, paths resolved against the parent>, null when modified */
+    private volatile Map.Entry<Path, List<Path>> paths;
+
+    /** */
+    Children() {
+    }
+
+    /** duplicated names are kept */
+    Children(Collection<String> names) {
+        names.forEach(name -> add(name, true));
+    }
+
+    /** @return false when the name exists and duplication is not allowed */
+    synchronized boolean add(String name, boolean allowDuplicated) {
+        Integer count = names.get(name);
+        if (count != null && !allowDuplicated) {
+            return false;
+        }
+        names.put(name, count == null ? 1 : count + 1);
+        size++;
+        modified();
+        return true;
+    }
+
+    /** removes one of the name */
+    synchronized boolean remove(String name) {
+        Integer count = names.get(name);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            names.remove(name);
+        } else {
+            names.put(name, count - 1);
+        }
+        size--;
+        modified();
+        return true;
+    }
+
+    /** */
+    synchronized boolean contains(String name) {
+        return names.containsKey(name);
+    }
+
+    /** including duplicated ones */
+    synchronized int size() {
+        return size;
+    }
+
+    /** guarded by this */
+    private void modified() {
+        snapshot = null;
+        paths = null;
+    }
+
+    /** @return unmodifiable */
+    List<String> snapshot() {
+        List<String> s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                List<String> list = new ArrayList<>(size);
+                names.forEach((name, count) -> {
+                    for (int i = 0; i < count; i++) {
+                        list.add(name);
+                    }
+                });
+                s = Collections.unmodifiableList(list);
+                snapshot = s;
+            }
+        }
+        return s;
+    }
+
+    /** @return unmodifiable, names resolved against the parent */
+    List<Path> paths(Path parent) {
+        Map.Entry<Path, List<Path>> p = paths;
+        if (p == null || !parent.equals(p.getKey())) {
+            synchronized (this) {
+                p = Map.entry(parent, snapshot().stream().map(parent::resolve).toList());
+                paths = p;
+            }
+        }
+        return p.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+
+/**
+ * EvictionPolicy.
+ * <p>
+ * Decides which entry of a {@link Cache} should be dropped when the cache is over its bounds.
+ * Implementations must be thread safe.
+ * </p>
+ *
+ * @param <K> key type, the cache decides what is passed
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ * @see LruEvictionPolicy
+ */
+public interface EvictionPolicy<K> {
+
+    /** the key is read */
+    void touch(K key);
+
+    /** the key is added or replaced */
+    void put(K key, long weight);
+
+    /** the key is removed by the cache itself */
+    void remove(K key);
+
+    /**
+     * Takes a key to be evicted out of this policy.
+     *
+     * @return null when this policy is in bounds
+     */
+    K victim();
+
+    /** current number of the keys */
+    int size();
+
+    /** current total weight of the keys */
+    long weight();
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * FileDataCache.
+ * <p>
+ * Downloaded file data in a local folder bounded by an {@link EvictionPolicy}, weights are bytes.
+ * sizes and access times are kept in memory, and in the index below when it's opened.
+ * a file opened by {@link #open(String)} is deleted after its channels are closed when it is evicted,
+ * so readers never see a file disappearing.
+ * </p>
+ * <p>
+ * an index is kept in the folder after {@link #openIndex()}, so files survive restarts.
+ * the index is appended without syncing, a crash leaves only files not indexed, which are deleted at next opening
+ * when their names match the names of files of the cache, or entries of files lost, which are found when they are opened at first.
+ * a folder not empty without an index is refused, so that a folder mistaken for the cache is never swept.
+ * only complete files survive, files registered by {@link #acquire(String)} are never complete
+ * because which blocks of them are filled is not indexed, so they are deleted at next opening.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class FileDataCache implements Closeable {
+
+    private static final Logger logger = getLogger(FileDataCache.class.getName());
+
+    /** a cached file */
+    private static final class Entry {
+        final String key;
+        long size;
+        /** number of open channels */
+        int pins;
+        /** evicted or removed while pinned */
+        boolean doomed;
+        /** false while it's growing, e.g. by {@link #acquire(String)} */
+        boolean complete;
+        /** false after recovered from the index until it's opened */
+        boolean verified = true;
+        /** millis */
+        long lastAccess = System.currentTimeMillis();
+
+        Entry(String key, long size, boolean complete) {
+            this.key = key;
+            this.size = size;
+            this.complete = complete;
+        }
+    }
+
+    /** index file name in the folder */
+    public static final String INDEX = "index";
+
+    /** index file header "VNFC" */
+    private static final int MAGIC = 0x564e4643;
+
+    /** index format version */
+    private static final int VERSION = 1;
+
+    /** record types */
+    private static final byte TYPE_PUT = 1, TYPE_REMOVE = 2;
+
+    /** */
+    private final Path root;
+
+    /** */
+    private final EvictionPolicy<String> policy;
+
+    /** names of files of the cache, only files not indexed matching this are deleted */
+    private final Pattern names;
+
+    /** <key, entry>, doomed entries are not here */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** null when files are not indexed */
+    private FileChannel index;
+
+    /**
+     * @param root a folder for files
+     * @param policy decides files to be evicted, weights are sizes in bytes
+     */
+    public FileDataCache(Path root, EvictionPolicy<String> policy) {
+        this(root, policy, Pattern.compile(".+"));
+    }
+
+    /**
+     * @param root a folder for files
+     * @param policy decides files to be evicted, weights are sizes in bytes
+     * @param names names of files of the cache, keys and names derived from keys
+     */
+    public FileDataCache(Path root, EvictionPolicy<String> policy, Pattern names) {
+        this.root = root;
+        this.policy = policy;
+        this.names = names;
+    }
+
+    /** */
+    public Path getRoot() {
+        return root;
+    }
+
+    /** @return where the file for the key is, it might not exist */
+    public Path resolve(String key) {
+        return root.resolve(key);
+    }
+
+    /** */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Opens a cached file for reading, the file is kept until the channel is closed.
+     *
+     * @return null when it's not cached
+     */
+    public SeekableByteChannel open(String key) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            policy.touch(key);
+            entry.lastAccess = System.currentTimeMillis();
+            entry.pins++;
+        }
+        try {
+            if (!entry.verified) {
+                long size = Files.size(resolve(key));
+                if (size != entry.size) {
+                    logger.log(Level.DEBUG, "size mismatch: " + key + ", " + size + "/" + entry.size);
+                    unpin(entry);
+                    remove(key);
+                    return null;
+                }
+                entry.verified = true;
+            }
+            return new PinnedChannel(entry, FileChannel.open(resolve(key), StandardOpenOption.READ));
+        } catch (NoSuchFileException e) {
+            logger.log(Level.DEBUG, "deleted outside: " + key);
+            unpin(entry);
+            remove(key);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            unpin(entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Registers the file placed at {@link #resolve(String)} and evicts others when over the bounds.
+     * the file is opened before evicting, so it's readable even if it's larger than the bounds.
+     *
+     * @return a channel for reading the file
+     */
+    public SeekableByteChannel put(String key) throws IOException {
+        long size = Files.size(resolve(key));
+        Entry entry = new Entry(key, size, true);
+        entry.pins++;
+        synchronized (this) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                old.doomed = true; // the file was replaced already
+            }
+            policy.put(key, size);
+            writePut(entry);
+        }
+        try {
+            return new PinnedChannel(entry, FileChannel.open(resolve(key), StandardOpenOption.READ));
+        } catch (IOException | RuntimeException e) {
+            unpin(entry);
+            throw e;
+        } finally {
+            evict();
+        }
+    }
+
+    /**
+     * Registers a file growing while it's used, e.g. a {@link SparseFile}, and pins it.
+     * the file placed at {@link #resolve(String)} might not exist yet.
+     * it's not kept over restarts by the index.
+     *
+     * @return unpins the file when it's closed
+     */
+    public Closeable acquire(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key, 0, false);
+                entries.put(key, entry);
+                policy.put(key, 0);
+                writePut(entry);
+            } else {
+                policy.touch(key);
+                entry.lastAccess = System.currentTimeMillis();
+            }
+            entry.pins++;
+        }
+        Entry acquired = entry;
+        return () -> unpin(acquired);
+    }
+
+    /** Updates the size of a file registered, others are evicted when over the bounds. */
+    public void resize(String key, long size) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return;
+            }
+            entry.size = size;
+            policy.put(key, size);
+        }
+        evict();
+    }
+
+    /**
+     * Moves the file to another key, e.g. when the remote file is moved,
+     * channels opened before keep reading it.
+     *
+     * @return false when it's not cached
+     */
+    public synchronized boolean rename(String from, String to) throws IOException {
+        Entry entry = entries.get(from);
+        if (entry == null) {
+            return false;
+        }
+        Files.move(resolve(from), resolve(to), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        entries.remove(from);
+        policy.remove(from);
+        writeRemove(from);
+        drop(entry); // nothing left to delete
+        Entry renamed = new Entry(to, entry.size, entry.complete);
+        Entry old = entries.put(to, renamed);
+        if (old != null) {
+            old.doomed = true; // the file was replaced already
+        }
+        policy.put(to, entry.size);
+        writePut(renamed);
+        return true;
+    }
+
+    /** Removes the file, it's deleted after channels are closed. */
+    public synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            policy.remove(key);
+            writeRemove(key);
+            drop(entry);
+        }
+    }
+
+    /** */
+    private synchronized void evict() {
+        String victim;
+        while ((victim = policy.victim()) != null) {
+            Entry entry = entries.remove(victim);
+            if (entry != null) {
+                logger.log(Level.DEBUG, "evicted: " + victim + ", " + entry.size + " bytes");
+                writeRemove(victim);
+                drop(entry);
+            }
+        }
+    }
+
+    /** deletes the file now or after channels are closed */
+    private void drop(Entry entry) {
+        if (entry.pins > 0) {
+            entry.doomed = true;
+        } else {
+            delete(entry);
+        }
+    }
+
+    /** */
+    private synchronized void unpin(Entry entry) {
+        if (--entry.pins == 0 && entry.doomed) {
+            delete(entry);
+        }
+    }
+
+    /** the file is not deleted when it's registered again */
+    private void delete(Entry entry) {
+        if (entries.containsKey(entry.key)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(resolve(entry.key));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot delete: " + resolve(entry.key) + ", " + e);
+        }
+    }
+
+    /**
+     * Recovers files from the index in the folder and keeps indexing files, does nothing when it's already opened.
+     * files are verified when they are opened at first. files not indexed and growing ones are deleted.
+     *
+     * @throws IOException when the folder is not empty but has no index, it's not a folder of the cache
+     */
+    public synchronized void openIndex() throws IOException {
+        if (index != null) {
+            return;
+        }
+        Files.createDirectories(root);
+        Path file = root.resolve(INDEX);
+        if (!Files.exists(file)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, path -> !path.getFileName().toString().startsWith(INDEX))) {
+                if (stream.iterator().hasNext()) {
+                    throw new IOException("not empty and no index, not a folder of the cache: " + root);
+                }
+            }
+        }
+        Map<String, Entry> recovered = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() >= 8) {
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    throw new IOException("not an index: " + file);
+                }
+                try {
+                    while (buffer.hasRemaining()) {
+                        byte type = buffer.get();
+                        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+                        buffer.get(bytes);
+                        String key = new String(bytes, StandardCharsets.UTF_8);
+                        switch (type) {
+                        case TYPE_PUT -> {
+                            Entry entry = new Entry(key, buffer.getLong(), buffer.get() != 0);
+                            entry.lastAccess = buffer.getLong();
+                            entry.verified = false;
+                            recovered.put(key, entry);
+                        }
+                        case TYPE_REMOVE -> recovered.remove(key);
+                        default -> throw new IOException("broken index: " + file);
+                        }
+                    }
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    logger.log(Level.WARNING, "torn record is ignored: " + file); // crashed while appending
+                }
+            }
+        }
+        recovered.values().removeIf(entry -> !entry.complete);
+        List<Entry> ordered = new ArrayList<>(recovered.values());
+        ordered.sort(Comparator.comparingLong(entry -> entry.lastAccess)); // the least recent first
+        for (Entry entry : ordered) {
+            entries.putIfAbsent(entry.key, entry);
+            policy.put(entry.key, entry.size);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.startsWith(INDEX) && names.matcher(name).matches() && !entries.containsKey(name) && Files.isRegularFile(path)) {
+                    logger.log(Level.DEBUG, "not indexed, delete: " + name);
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        writeIndex(file);
+        index = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logger.log(Level.DEBUG, "index recovered: " + file + ", files: " + entries.size() + ", bytes: " + policy.weight());
+        evict();
+    }
+
+    /** writes all entries into a new index, then replaces the file with it */
+    private void writeIndex(Path file) throws IOException {
+        Path tmp = file.resolveSibling(INDEX + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+            for (Entry entry : entries.values()) {
+                channel.write(putRecord(entry));
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // compacted
+    }
+
+    /** */
+    private static ByteBuffer putRecord(Entry entry) {
+        byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + key.length + 8 + 1 + 8);
+        buffer.put(TYPE_PUT).putShort((short) key.length).put(key);
+        buffer.putLong(entry.size).put((byte) (entry.complete ? 1 : 0)).putLong(entry.lastAccess);
+        return buffer.flip();
+    }
+
+    /** */
+    private void writePut(Entry entry) {
+        write(putRecord(entry));
+    }
+
+    /** */
+    private void writeRemove(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        write(ByteBuffer.allocate(1 + 2 + bytes.length).put(TYPE_REMOVE).putShort((short) bytes.length).put(bytes).flip());
+    }
+
+    /** an index not updated is corrected at next opening */
+    private void write(ByteBuffer buffer) {
+        if (index == null) {
+            return;
+        }
+        try {
+            index.write(buffer);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "index is not updated: " + e);
+        }
+    }
+
+    /** Saves the index with last access times, files are kept. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (index == null) {
+            return;
+        }
+        index.close();
+        index = null;
+        writeIndex(root.resolve(INDEX));
+    }
+
+    /** number of files */
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    /** total bytes of files within the bounds */
+    public long size() {
+        return policy.weight();
+    }
+
+    /** unpins the entry when it's closed */
+    private class PinnedChannel implements SeekableByteChannel {
+
+        final Entry entry;
+        final FileChannel channel;
+        boolean closed;
+
+        PinnedChannel(Entry entry, FileChannel channel) {
+            this.entry = entry;
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                channel.close();
+            } finally {
+                unpin(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * Journal.
+ * <p>
+ * A crash-safe local journal of metadata mutations replayed to the remote in background.
+ * a record is synced to the local file before {@link #append(Kind, Path, Path, Object)} returns,
+ * records are replayed one by one in appended order, a record not replayed yet
+ * is replayed again when the journal is opened next time.
+ * creating a folder then deleting it before the creation is replayed cancels both.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class Journal implements Closeable {
+
+    private static final Logger logger = getLogger(Journal.class.getName());
+
+    /** kinds of mutations */
+    public enum Kind {
+        /** a folder is created at the source */
+        CREATE,
+        /** the source is deleted */
+        DELETE,
+        /** the source is renamed to the target */
+        RENAME
+    }
+
+    /** a mutation */
+    public static final class Record {
+
+        private final long seq;
+        private final Kind kind;
+        private final Path source;
+        private final Path target;
+        /** not saved, null for a record recovered from the file */
+        private final Object attachment;
+
+        private Record(long seq, Kind kind, Path source, Path target, Object attachment) {
+            this.seq = seq;
+            this.kind = kind;
+            this.source = source;
+            this.target = target;
+            this.attachment = attachment;
+        }
+
+        /** */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** */
+        public Path getSource() {
+            return source;
+        }
+
+        /** null except {@link Kind#RENAME} */
+        public Path getTarget() {
+            return target;
+        }
+
+        /** an object given at appending, null when the record is recovered from the file */
+        public Object getAttachment() {
+            return attachment;
+        }
+
+        /** the path is an ancestor, a descendant or the same of the source or the target */
+        private boolean isRelated(Path path) {
+            return path.startsWith(source) || source.startsWith(path) ||
+                    (target != null && (path.startsWith(target) || target.startsWith(path)));
+        }
+
+        /** the source or the target is the path or under the path */
+        private boolean isUnder(Path path) {
+            return source.startsWith(path) || (target != null && target.startsWith(path));
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + source + (target != null ? " -> " + target : "");
+        }
+    }
+
+    /** applies records to the remote */
+    public interface Replayer {
+
+        /** applies the record, the record is retried when an exception is thrown */
+        void replay(Record record) throws IOException;
+
+        /** called when the record is given up after retries */
+        default void failed(Record record, IOException e) {
+        }
+
+        /** called when all records are replayed, while the journal is locked */
+        default void drained() {
+        }
+    }
+
+    /** journal file header "VNFJ" */
+    private static final int MAGIC = 0x564e464a;
+
+    /** journal format version */
+    private static final int VERSION = 1;
+
+    /** record types */
+    private static final byte TYPE_APPEND = 1, TYPE_DONE = 2;
+
+    /** times to retry a record */
+    private static final int MAX_RETRIES = 3;
+
+    /** millis, doubled for each retry */
+    private static final long RETRY_DELAY = 1000;
+
+    /** */
+    private final Path file;
+
+    /** */
+    private final Replayer replayer;
+
+    /** records not replayed yet, the first one might be replaying */
+    private final Deque<Record> pending = new ArrayDeque<>();
+
+    /** the record replaying now, null when idle */
+    private Record replaying;
+
+    /** null before opened */
+    private FileChannel channel;
+
+    /** null before opened */
+    private Thread worker;
+
+    /** */
+    private boolean closed;
+
+    /** */
+    private long nextSeq = 1;
+
+    /** @param file a local file for the journal */
+    public Journal(Path file, Replayer replayer) {
+        this.file = file;
+        this.replayer = replayer;
+    }
+
+    /**
+     * Opens the file and starts replaying records left in it, does nothing when it's already opened.
+     *
+     * @param fs paths in the file are parsed by this
+     */
+    public synchronized void open(FileSystem fs) throws IOException {
+        if (channel != null) {
+            return;
+        }
+        if (closed) {
+            throw new IOException("closed: " + file);
+        }
+        Map<Long, Record> records = new LinkedHashMap<>();
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() >= 8) {
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                    throw new IOException("not a journal: " + file);
+                }
+                try {
+                    while (buffer.hasRemaining()) {
+                        byte type = buffer.get();
+                        long seq = buffer.getLong();
+                        switch (type) {
+                        case TYPE_APPEND -> {
+                            Kind kind = Kind.values()[buffer.get()];
+                            Path source = fs.getPath(readString(buffer));
+                            String target = readString(buffer);
+                            records.put(seq, new Record(seq, kind, source, target.isEmpty() ? null : fs.getPath(target), null));
+                        }
+                        case TYPE_DONE -> records.remove(seq);
+                        default -> throw new IOException("broken journal: " + file);
+                        }
+                        nextSeq = Math.max(nextSeq, seq + 1);
+                    }
+                } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                    logger.log(Level.WARNING, "torn record is ignored: " + file); // crashed while appending
+                }
+            }
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel compacted = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                compacted.write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip());
+                for (Record record : records.values()) {
+                    write(compacted, record);
+                }
+                compacted.force(false);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // compacted
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp); // stays not opened, the original file is untouched
+            throw e;
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pending.addAll(records.values());
+        if (!pending.isEmpty()) {
+            logger.log(Level.INFO, "journal recovered: " + file + ", records: " + pending.size());
+        }
+        worker = new Thread(this::run, "journal-replayer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** */
+    public synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    /**
+     * Appends a mutation, a {@link Kind#DELETE} cancels a creation of the same path not replayed yet
+     * when nothing else refers the path after it.
+     *
+     * @param target only for {@link Kind#RENAME}
+     * @param attachment an object for the replayer, not saved
+     * @return false when the record is cancelled with a creation
+     */
+    public synchronized boolean append(Kind kind, Path source, Path target, Object attachment) throws IOException {
+        if (channel == null || closed) {
+            throw new IOException("not open: " + file);
+        }
+        Path s = source.toAbsolutePath();
+        Path t = target != null ? target.toAbsolutePath() : null;
+        if (kind == Kind.DELETE) {
+            Iterator<Record> i = pending.descendingIterator();
+            while (i.hasNext()) {
+                Record record = i.next();
+                if (record == replaying) {
+                    break;
+                }
+                if (record.kind == Kind.CREATE && record.source.equals(s)) {
+                    i.remove();
+                    writeDone(record.seq);
+                    logger.log(Level.DEBUG, "journal cancelled: " + record);
+                    return false;
+                }
+                if (record.isUnder(s)) {
+                    break;
+                }
+            }
+        }
+        Record record = new Record(nextSeq++, kind, s, t, attachment);
+        write(channel, record);
+        channel.force(false);
+        pending.addLast(record);
+        notifyAll();
+        return true;
+    }
+
+    /** @return true when a record not replayed yet refers the path, its ancestors or its descendants */
+    public synchronized boolean isPending(Path path) {
+        Path p = path.toAbsolutePath();
+        return pending.stream().anyMatch(r -> r.isRelated(p));
+    }
+
+    /** number of records not replayed yet */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Waits until records referring the path, its ancestors or its descendants are replayed.
+     * does not wait on the replaying thread.
+     */
+    public synchronized void await(Path path) throws IOException {
+        Path p = path.toAbsolutePath();
+        while (Thread.currentThread() != worker && pending.stream().anyMatch(r -> r.isRelated(p))) {
+            waitForReplay();
+        }
+    }
+
+    /** Waits until all records are replayed, does not wait on the replaying thread. */
+    public synchronized void flush() throws IOException {
+        while (Thread.currentThread() != worker && !pending.isEmpty() && worker != null) {
+            waitForReplay();
+        }
+    }
+
+    /** */
+    private void waitForReplay() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException("interrupted while waiting for the journal: " + file).initCause(e);
+        }
+    }
+
+    /** replays records in order */
+    private void run() {
+        while (true) {
+            Record record;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                record = pending.peekFirst();
+                replaying = record;
+            }
+            replay(record);
+            synchronized (this) {
+                pending.removeFirst();
+                replaying = null;
+                try {
+                    writeDone(record.seq);
+                    if (pending.isEmpty()) {
+                        channel.truncate(8);
+                        replayer.drained();
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "journal is not updated: " + file, e); // replayed again at next opening
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /** replays a record with retries */
+    private void replay(Record record) {
+        for (int i = 0; ; i++) {
+            try {
+                replayer.replay(record);
+                logger.log(Level.DEBUG, "journal replayed: " + record);
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (i >= MAX_RETRIES) {
+                    logger.log(Level.WARNING, "journal gave up: " + record, e);
+                    replayer.failed(record, e instanceof IOException ? (IOException) e : new IOException(e));
+                    return;
+                }
+                logger.log(Level.DEBUG, "journal retries: " + record + ", " + e);
+                try {
+                    Thread.sleep(RETRY_DELAY << i);
+                } catch (InterruptedException f) {
+                    Thread.currentThread().interrupt();
+                    replayer.failed(record, new InterruptedIOException("interrupted: " + record));
+                    return;
+                }
+            }
+        }
+    }
+
+    /** */
+    private static void write(FileChannel channel, Record record) throws IOException {
+        byte[] source = record.source.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] target = record.target != null ? record.target.toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 1 + 4 + source.length + 4 + target.length);
+        buffer.put(TYPE_APPEND).putLong(record.seq).put((byte) record.kind.ordinal());
+        buffer.putInt(source.length).put(source).putInt(target.length).put(target);
+        channel.write(buffer.flip());
+    }
+
+    /** */
+    private void writeDone(long seq) throws IOException {
+        channel.write(ByteBuffer.allocate(1 + 8).put(TYPE_DONE).putLong(seq).flip());
+        channel.force(false);
+    }
+
+    /** */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Replays all records left, then stops. */
+    @Override
+    public void close() throws IOException {
+        Thread worker;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+            worker = this.worker;
+        }
+        if (worker != null) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw (IOException) new InterruptedIOException("interrupted while closing the journal: " + file).initCause(e);
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * LfuEvictionPolicy.
+ * <p>
+ * Least frequently used policy bounded by a number of entries and/or a total weight,
+ * the least recently used one is evicted among the same frequency.
+ * adding a key counts as a use, replacing it (e.g. resizing) doesn't.
+ * all frequencies are halved every {@link #AGING_PERIOD} uses per key,
+ * so that keys used heavily only in the past are evicted eventually.
+ * </p>
+ *
+ * @param <K> key type
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class LfuEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    /** uses per key between agings */
+    static final int AGING_PERIOD = 10;
+
+    /** */
+    private static final class Node<K> {
+        final K key;
+        long weight;
+        long frequency;
+        /** last access order */
+        long order;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /** <key, node> */
+    private final Map<K, Node<K>> keys = new HashMap<>();
+
+    /** victim first */
+    private final TreeSet<Node<K>> nodes = new TreeSet<>(Comparator.<Node<K>>comparingLong(n -> n.frequency).thenComparingLong(n -> n.order));
+
+    /** 0 or less means unlimited */
+    private final long maxEntries;
+
+    /** 0 or less means unlimited */
+    private final long maxWeight;
+
+    /** */
+    private long weight;
+
+    /** */
+    private long clock;
+
+    /** uses since the last aging */
+    private long uses;
+
+    /**
+     * @param maxEntries 0 or less means unlimited
+     * @param maxWeight 0 or less means unlimited
+     */
+    public LfuEvictionPolicy(long maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /** */
+    private void access(Node<K> node) {
+        nodes.remove(node);
+        node.frequency++;
+        node.order = clock++;
+        nodes.add(node);
+        if (++uses >= (long) AGING_PERIOD * keys.size()) {
+            age();
+        }
+    }
+
+    /** halves all frequencies */
+    private void age() {
+        nodes.clear();
+        for (Node<K> node : keys.values()) {
+            node.frequency >>= 1;
+            nodes.add(node);
+        }
+        uses = 0;
+    }
+
+    @Override
+    public synchronized void touch(K key) {
+        Node<K> node = keys.get(key);
+        if (node != null) {
+            access(node);
+        }
+    }
+
+    @Override
+    public synchronized void put(K key, long weight) {
+        Node<K> node = keys.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            keys.put(key, node);
+            access(node);
+        }
+        this.weight += weight - node.weight;
+        node.weight = weight; // not a part of the order
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        Node<K> node = keys.remove(key);
+        if (node != null) {
+            nodes.remove(node);
+            weight -= node.weight;
+        }
+    }
+
+    @Override
+    public synchronized K victim() {
+        if ((maxEntries <= 0 || keys.size() <= maxEntries) && (maxWeight <= 0 || weight <= maxWeight)) {
+            return null;
+        }
+        Node<K> node = nodes.pollFirst();
+        if (node == null) {
+            return null;
+        }
+        keys.remove(node.key);
+        weight -= node.weight;
+        return node.key;
+    }
+
+    @Override
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    @Override
+    public synchronized long weight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "LFU{maxEntries: " + maxEntries + ", maxWeight: " + maxWeight + ", size: " + size() + ", weight: " + weight() + "}";
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * LruEvictionPolicy.
+ * <p>
+ * Least recently used policy bounded by a number of entries and/or a total weight.
+ * </p>
+ *
+ * @param <K> key type
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    /** access ordered, <key, weight> */
+    private final LinkedHashMap<K, Long> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** 0 or less means unlimited */
+    private final long maxEntries;
+
+    /** 0 or less means unlimited */
+    private final long maxWeight;
+
+    /** */
+    private long weight;
+
+    /**
+     * @param maxEntries 0 or less means unlimited
+     * @param maxWeight 0 or less means unlimited
+     */
+    public LruEvictionPolicy(long maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    @Override
+    public synchronized void touch(K key) {
+        keys.get(key);
+    }
+
+    @Override
+    public synchronized void put(K key, long weight) {
+        Long old = keys.put(key, weight);
+        this.weight += weight - (old != null ? old : 0);
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        Long old = keys.remove(key);
+        if (old != null) {
+            weight -= old;
+        }
+    }
+
+    @Override
+    public synchronized K victim() {
+        if ((maxEntries <= 0 || keys.size() <= maxEntries) && (maxWeight <= 0 || weight <= maxWeight)) {
+            return null;
+        }
+        Iterator<Map.Entry<K, Long>> i = keys.entrySet().iterator();
+        if (!i.hasNext()) {
+            return null;
+        }
+        Map.Entry<K, Long> eldest = i.next();
+        i.remove();
+        weight -= eldest.getValue();
+        return eldest.getKey();
+    }
+
+    @Override
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    @Override
+    public synchronized long weight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "LRU{maxEntries: " + maxEntries + ", maxWeight: " + maxWeight + ", size: " + size() + ", weight: " + weight() + "}";
+    }
+}
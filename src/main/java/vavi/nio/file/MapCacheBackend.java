@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+
+/**
+ * MapCacheBackend.
+ * <p>
+ * A {@link CacheBackend} over plain concurrent maps, for plugging an in-heap cache library in
+ * e.g. {@code new MapCacheBackend(() -> Caffeine.newBuilder().maximumSize(10000).build().asMap())}.
+ * maps must keep values by reference, see {@link CacheBackend}.
+ * </p>
+ * <p>
+ * moving or removing a subtree scans all keys of all maps.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class MapCacheBackend implements CacheBackend {
+
+    /** creates a concurrent map */
+    private final Supplier<? extends Map<?, ?>> factory;
+
+    /** maps created */
+    private final List<Map<Path, Object>> maps = new CopyOnWriteArrayList<>();
+
+    /** uses {@link ConcurrentHashMap} */
+    public MapCacheBackend() {
+        this(ConcurrentHashMap::new);
+    }
+
+    /** @param factory creates an empty thread safe map which does not allow null */
+    public MapCacheBackend(Supplier<? extends Map<?, ?>> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> Map<Path, V> newMap() {
+        Map<Path, Object> map = (Map<Path, Object>) factory.get();
+        maps.add(map);
+        return (Map<Path, V>) map;
+    }
+
+    @Override
+    public <V> void forEachUnder(Map<Path, V> map, Path path, BiConsumer<Path, V> action) {
+        map.forEach((k, v) -> {
+            if (k.startsWith(path)) {
+                action.accept(k, v);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void move(Path source, Path target) {
+        if (target.getParent() == null || target.startsWith(source) || source.startsWith(target)) {
+            throw new IllegalArgumentException("cannot move " + source + " to " + target);
+        }
+        remove(target);
+        for (Map<Path, Object> map : maps) {
+            for (Path k : keysUnder(map, source)) {
+                Object v = map.remove(k);
+                if (v != null) {
+                    map.put(target.resolve(source.relativize(k)), v);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void remove(Path path) {
+        for (Map<Path, Object> map : maps) {
+            keysUnder(map, path).forEach(map::remove);
+        }
+    }
+
+    /** a snapshot */
+    private static List<Path> keysUnder(Map<Path, Object> map, Path path) {
+        List<Path> keys = new ArrayList<>();
+        for (Path k : map.keySet()) {
+            if (k.startsWith(path)) {
+                keys.add(k);
+            }
+        }
+        return keys;
+    }
+}
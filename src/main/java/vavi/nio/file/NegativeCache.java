@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * NegativeCache.
+ * <p>
+ * Remembers paths not found for a short time, grouped by their parents
+ * so that a change of a folder drops all misses in it at once.
+ * bounded by number of paths, least recently used folders are dropped first.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+final class NegativeCache {
+
+    /** <parent, <name, expiration time in millis>> access ordered, guarded by this */
+    private final LinkedHashMap<Path, Map<String, Long>> parents = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** */
+    private final int maxEntries;
+
+    /** millis */
+    private final long ttl;
+
+    /** number of names, guarded by this */
+    private int size;
+
+    /** */
+    NegativeCache(int maxEntries, long ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    /** @param path absolute */
+    synchronized boolean contains(Path path) {
+        Path parent = path.getParent();
+        if (parent == null) {
+            return false;
+        }
+        Map<String, Long> names = parents.get(parent);
+        if (names == null) {
+            return false;
+        }
+        String name = path.getFileName().toString();
+        Long expiration = names.get(name);
+        if (expiration == null) {
+            return false;
+        }
+        if (expiration < System.currentTimeMillis()) {
+            remove(parent, names, name);
+            return false;
+        }
+        return true;
+    }
+
+    /** @param path absolute */
+    synchronized void put(Path path) {
+        Path parent = path.getParent();
+        if (parent == null) {
+            return;
+        }
+        if (parents.computeIfAbsent(parent, k -> new HashMap<>()).put(path.getFileName().toString(), System.currentTimeMillis() + ttl) == null) {
+            size++;
+        }
+        Iterator<Map<String, Long>> i = parents.values().iterator();
+        while (size > maxEntries && i.hasNext()) {
+            size -= i.next().size();
+            i.remove();
+        }
+    }
+
+    /**
+     * Drops the path and names in it.
+     *
+     * @param path absolute
+     */
+    synchronized void invalidate(Path path) {
+        Map<String, Long> children = parents.remove(path);
+        if (children != null) {
+            size -= children.size();
+        }
+        Path parent = path.getParent();
+        if (parent != null) {
+            Map<String, Long> names = parents.get(parent);
+            if (names != null) {
+                remove(parent, names, path.getFileName().toString());
+            }
+        }
+    }
+
+    /** guarded by this */
+    private void remove(Path parent, Map<String, Long> names, String name) {
+        if (names.remove(name) != null) {
+            size--;
+            if (names.isEmpty()) {
+                parents.remove(parent);
+            }
+        }
+    }
+
+    /** */
+    synchronized void clear() {
+        parents.clear();
+        size = 0;
+    }
+
+    /** */
+    synchronized int size() {
+        return size;
+    }
+}
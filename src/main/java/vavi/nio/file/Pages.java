@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * Pages.
+ * <p>
+ * An incremental listing, a page is fetched when it's requested.
+ * closing before the end cancels fetching the rest.
+ * </p>
+ *
+ * @param <T> element type
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public interface Pages<T> extends Closeable {
+
+    /** @return null at the end */
+    List<T> next() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /** converts each element */
+    default <R> Pages<R> map(Function<? super T, ? extends R> mapper) {
+        Pages<T> pages = this;
+        return new Pages<>() {
+            @Override
+            public List<R> next() throws IOException {
+                List<T> page = pages.next();
+                return page != null ? page.stream().<R>map(mapper).toList() : null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                pages.close();
+            }
+        };
+    }
+
+    /** a single page */
+    static <T> Pages<T> of(List<T> list) {
+        return new Pages<>() {
+            boolean done;
+
+            @Override
+            public List<T> next() {
+                if (done) {
+                    return null;
+                }
+                done = true;
+                return list;
+            }
+        };
+    }
+}
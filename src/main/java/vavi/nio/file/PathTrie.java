@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+
+/**
+ * PathTrie.
+ * <p>
+ * A tree keyed by path segments, several {@link Map}s created by {@link #newMap()} share the tree.
+ * a path segment is stored only once for all descendants and all maps,
+ * and {@link #move(Path, Path)} or {@link #remove(Path)} a subtree relinks one node
+ * for all maps instead of rehashing every descendant.
+ * </p>
+ * <p>
+ * keys must be absolute paths. reading is lock free, writing is serialized.
+ * </p>
+ * <p>
+ * this is the default {@link CacheBackend}.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class PathTrie implements CacheBackend {
+
+    /** <root e.g. "/", node> */
+    private final Map<Path, Node> roots = new ConcurrentHashMap<>();
+
+    /** number of maps, guarded by this */
+    private int slots;
+
+    /** a path segment */
+    private static final class Node {
+        /** null for a root */
+        volatile String name;
+        /** null for a root */
+        volatile Node parent;
+        /** not null for a root only */
+        final Path root;
+        /** <name, node>, created lazily */
+        volatile Map<String, Node> children;
+        /** values for each map, copy on write */
+        volatile Object[] values = new Object[0];
+        /** number of values in this subtree for each map, guarded by the trie */
+        int[] counts = new int[0];
+
+        Node(Path root) {
+            this.root = root;
+        }
+
+        Object value(int slot) {
+            Object[] v = values;
+            return slot < v.length ? v[slot] : null;
+        }
+
+        int count(int slot) {
+            return slot < counts.length ? counts[slot] : 0;
+        }
+
+        boolean isEmpty() {
+            Map<String, Node> c = children;
+            if (c != null && !c.isEmpty()) {
+                return false;
+            }
+            for (Object v : values) {
+                if (v != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** creates a map shares this tree */
+    @Override
+    public synchronized <V> TrieMap<V> newMap() {
+        return new TrieMap<>(slots++);
+    }
+
+    /** @param map must be a {@link TrieMap} of this tree */
+    @Override
+    public <V> void forEachUnder(Map<Path, V> map, Path path, BiConsumer<Path, V> action) {
+        ((TrieMap<V>) map).forEachUnder(path, action);
+    }
+
+    /** @return null when not found */
+    private Node find(Path path) {
+        Node node = roots.get(rootOf(path));
+        for (int i = 0; node != null && i < path.getNameCount(); i++) {
+            Map<String, Node> children = node.children;
+            node = children != null ? children.get(path.getName(i).toString()) : null;
+        }
+        return node;
+    }
+
+    /** */
+    private static Path rootOf(Path path) {
+        Path root = path.getRoot();
+        if (root == null) {
+            throw new IllegalArgumentException("not absolute: " + path);
+        }
+        return root;
+    }
+
+    /** guarded by this */
+    private Node create(Path path) {
+        Node node = roots.computeIfAbsent(rootOf(path), Node::new);
+        for (int i = 0; i < path.getNameCount(); i++) {
+            if (node.children == null) {
+                node.children = new ConcurrentHashMap<>();
+            }
+            String name = path.getName(i).toString();
+            Node parent = node;
+            node = node.children.computeIfAbsent(name, k -> new Node(null));
+            if (node.parent == null) {
+                node.name = name;
+                node.parent = parent;
+            }
+        }
+        return node;
+    }
+
+    /** guarded by this */
+    private void set(Node node, int slot, Object value) {
+        Object[] values = node.values;
+        Object old = slot < values.length ? values[slot] : null;
+        Object[] newValues = Arrays.copyOf(values, Math.max(values.length, slot + 1));
+        newValues[slot] = value;
+        node.values = newValues;
+        int delta = (value != null ? 1 : 0) - (old != null ? 1 : 0);
+        if (delta != 0) {
+            int[] d = new int[slot + 1];
+            d[slot] = delta;
+            addCounts(node, d, 1);
+        }
+        if (value == null) {
+            prune(node);
+        }
+    }
+
+    /** adds counts to the node and its ancestors, guarded by this */
+    private static void addCounts(Node node, int[] counts, int sign) {
+        for (Node n = node; n != null; n = n.parent) {
+            if (n.counts.length < counts.length) {
+                n.counts = Arrays.copyOf(n.counts, counts.length);
+            }
+            for (int i = 0; i < counts.length; i++) {
+                n.counts[i] += sign * counts[i];
+            }
+        }
+    }
+
+    /** unlinks the node from its parent, guarded by this */
+    private void detach(Node node) {
+        addCounts(node.parent, node.counts, -1);
+        if (node.parent != null) {
+            node.parent.children.remove(node.name, node);
+        } else {
+            roots.remove(node.root, node);
+        }
+    }
+
+    /** unlinks empty nodes upward, guarded by this */
+    private void prune(Node node) {
+        while (node != null && node.isEmpty()) {
+            Node parent = node.parent;
+            detach(node);
+            node = parent;
+        }
+    }
+
+    /**
+     * Relinks a subtree for all maps, an existing subtree at the target is dropped.
+     *
+     * @throws IllegalArgumentException target is a root, under the source or an ancestor of the source
+     */
+    @Override
+    public synchronized void move(Path source, Path target) {
+        Node node = find(source);
+        if (node == null) {
+            return;
+        }
+        if (target.getParent() == null || target.startsWith(source) || source.startsWith(target)) {
+            throw new IllegalArgumentException("cannot move " + source + " to " + target);
+        }
+        Node oldParent = node.parent;
+        Node existing = find(target);
+        if (existing != null) {
+            detach(existing);
+        }
+        Node newParent = create(target.getParent());
+        detach(node);
+        String name = target.getFileName().toString();
+        node.name = name;
+        node.parent = newParent;
+        if (newParent.children == null) {
+            newParent.children = new ConcurrentHashMap<>();
+        }
+        newParent.children.put(name, node);
+        addCounts(newParent, node.counts, 1);
+        prune(oldParent);
+    }
+
+    /** Drops a subtree for all maps. */
+    @Override
+    public synchronized void remove(Path path) {
+        Node node = find(path);
+        if (node != null) {
+            Node parent = node.parent;
+            detach(node);
+            prune(parent);
+        }
+    }
+
+    /** Drops all. */
+    public synchronized void clear() {
+        roots.clear();
+    }
+
+    /** visits a subtree in depth first order */
+    private static void walk(Node node, Path path, BiConsumer<Path, Node> action) {
+        Deque<Map.Entry<Path, Node>> stack = new ArrayDeque<>();
+        stack.push(Map.entry(path, node));
+        while (!stack.isEmpty()) {
+            Map.Entry<Path, Node> e = stack.pop();
+            action.accept(e.getKey(), e.getValue());
+            Map<String, Node> children = e.getValue().children;
+            if (children != null) {
+                children.forEach((name, child) -> stack.push(Map.entry(e.getKey().resolve(name), child)));
+            }
+        }
+    }
+
+    /**
+     * A map view of one slot of the tree.
+     *
+     * @param <V> value type
+     */
+    public final class TrieMap<V> extends AbstractMap<Path, V> {
+
+        /** */
+        private final int slot;
+
+        private TrieMap(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            if (!(key instanceof Path)) {
+                return null;
+            }
+            Node node = find((Path) key);
+            return node != null ? (V) node.value(slot) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V put(Path key, V value) {
+            Objects.requireNonNull(value);
+            synchronized (PathTrie.this) {
+                Node node = create(key);
+                @SuppressWarnings("unchecked")
+                V old = (V) node.value(slot);
+                set(node, slot, value);
+                return old;
+            }
+        }
+
+        @Override
+        public V remove(Object key) {
+            if (!(key instanceof Path)) {
+                return null;
+            }
+            synchronized (PathTrie.this) {
+                Node node = find((Path) key);
+                if (node == null) {
+                    return null;
+                }
+                @SuppressWarnings("unchecked")
+                V old = (V) node.value(slot);
+                if (old != null) {
+                    set(node, slot, null);
+                }
+                return old;
+            }
+        }
+
+        @Override
+        public V computeIfAbsent(Path key, Function<? super Path, ? extends V> mappingFunction) {
+            synchronized (PathTrie.this) {
+                V value = get(key);
+                if (value == null) {
+                    value = mappingFunction.apply(key);
+                    if (value != null) {
+                        put(key, value);
+                    }
+                }
+                return value;
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (PathTrie.this) {
+                return roots.values().stream().mapToInt(n -> n.count(slot)).sum();
+            }
+        }
+
+        /** visits values in the subtree including the path itself */
+        @SuppressWarnings("unchecked")
+        public void forEachUnder(Path path, BiConsumer<Path, V> action) {
+            Node node = find(path);
+            if (node != null) {
+                walk(node, path, (p, n) -> {
+                    Object value = n.value(slot);
+                    if (value != null) {
+                        action.accept(p, (V) value);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public Set<Entry<Path, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Path, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return TrieMap.this.size();
+                }
+            };
+        }
+
+        /** weakly consistent */
+        private class EntryIterator implements Iterator<Entry<Path, V>> {
+
+            /** */
+            private final Deque<Entry<Path, Node>> stack = new ArrayDeque<>();
+            /** */
+            private Entry<Path, V> next;
+            /** */
+            private Path last;
+
+            EntryIterator() {
+                roots.forEach((root, node) -> stack.push(Map.entry(root, node)));
+                advance();
+            }
+
+            @SuppressWarnings("unchecked")
+            private void advance() {
+                next = null;
+                while (next == null && !stack.isEmpty()) {
+                    Entry<Path, Node> e = stack.pop();
+                    Map<String, Node> children = e.getValue().children;
+                    if (children != null) {
+                        children.forEach((name, child) -> stack.push(Map.entry(e.getKey().resolve(name), child)));
+                    }
+                    Object value = e.getValue().value(slot);
+                    if (value != null) {
+                        next = new SimpleImmutableEntry<>(e.getKey(), (V) value);
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Entry<Path, V> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry<Path, V> e = next;
+                last = e.getKey();
+                advance();
+                return e;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                TrieMap.this.remove(last);
+                last = null;
+            }
+        }
+    }
+}
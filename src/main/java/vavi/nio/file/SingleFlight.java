@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * SingleFlight.
+ * <p>
+ * Coalesces concurrent loads for the same key, only one caller runs the loader
+ * and others wait for its result or its exception.
+ * a loader calling this again for the same key on the same thread runs directly.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class SingleFlight<K, V> {
+
+    /** a loader */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    /** <key, loading> */
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** keys loading by the current thread */
+    private final ThreadLocal<Set<K>> owned = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Loads a value, or waits for the same key loading by another thread.
+     *
+     * @throws IOException thrown by the loader
+     */
+    public V execute(K key, Loader<V> loader) throws IOException {
+        if (owned.get().contains(key)) {
+            return loader.load();
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing == null) {
+            owned.get().add(key);
+            try {
+                V value = loader.load();
+                future.complete(value);
+                return value;
+            } catch (IOException | RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                owned.get().remove(key);
+                inFlight.remove(key, future);
+            }
+        } else {
+            return await(key, existing);
+        }
+    }
+
+    /**
+     * Waits for the key loading by another thread without loading it.
+     *
+     * @return null when the key is not loading by another thread
+     * @throws IOException thrown by the loader of another thread
+     */
+    public V join(K key) throws IOException {
+        if (owned.get().contains(key)) {
+            return null;
+        }
+        CompletableFuture<V> existing = inFlight.get(key);
+        return existing != null ? await(key, existing) : null;
+    }
+
+    /** */
+    private V await(K key, CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException("interrupted while waiting: " + key).initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /** number of keys loading now */
+    public int size() {
+        return inFlight.size();
+    }
+}
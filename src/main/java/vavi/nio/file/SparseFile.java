@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.function.LongConsumer;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * SparseFile.
+ * <p>
+ * A local copy of a remote file filled block by block,
+ * blocks are downloaded by ranges when they are read at first.
+ * which blocks are present is kept in memory.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class SparseFile {
+
+    private static final Logger logger = getLogger(SparseFile.class.getName());
+
+    /** downloads a range */
+    @FunctionalInterface
+    public interface Fetcher {
+
+        /** @return a stream of the range, it might be shorter at the end of the file */
+        InputStream fetch(long offset, long length) throws IOException;
+    }
+
+    /** */
+    private final Path file;
+
+    /** bytes of the remote file */
+    private final long size;
+
+    /** */
+    private final int blockSize;
+
+    /** */
+    private final Fetcher fetcher;
+
+    /** blocks present in the local file */
+    private final BitSet present = new BitSet();
+
+    /** called with bytes present after blocks are added */
+    private final LongConsumer onGrow;
+
+    /**
+     * @param file a local file, created if not exists
+     * @param size bytes of the remote file
+     * @param onGrow called with bytes present after blocks are added
+     */
+    public SparseFile(Path file, long size, int blockSize, Fetcher fetcher, LongConsumer onGrow) {
+        this.file = file;
+        this.size = size;
+        this.blockSize = blockSize;
+        this.fetcher = fetcher;
+        this.onGrow = onGrow;
+    }
+
+    /** */
+    public Path getFile() {
+        return file;
+    }
+
+    /** bytes of the remote file */
+    public long size() {
+        return size;
+    }
+
+    /** */
+    private int blocks() {
+        return (int) ((size + blockSize - 1) / blockSize);
+    }
+
+    /** bytes present in the local file */
+    public synchronized long cachedBytes() {
+        if (size == 0) {
+            return 0;
+        }
+        int n = present.cardinality();
+        return present.get(blocks() - 1) ? (long) (n - 1) * blockSize + (size - (long) (blocks() - 1) * blockSize) : (long) n * blockSize;
+    }
+
+    /** all blocks are present */
+    public synchronized boolean isComplete() {
+        return present.cardinality() == blocks();
+    }
+
+    /**
+     * Downloads blocks in the range not present yet, contiguous missing blocks are downloaded at once.
+     *
+     * @param channel the local file opened for writing
+     */
+    private void fill(FileChannel channel, long position, long length) throws IOException {
+        if (length <= 0 || position >= size) {
+            return;
+        }
+        int first = (int) (position / blockSize);
+        int last = (int) ((Math.min(position + length, size) - 1) / blockSize);
+        int block = first;
+        while (block <= last) {
+            int start, end;
+            synchronized (this) {
+                start = present.nextClearBit(block);
+                if (start > last) {
+                    return;
+                }
+                end = present.nextSetBit(start);
+                end = end < 0 || end > last + 1 ? last + 1 : end;
+            }
+            long offset = (long) start * blockSize;
+            long bytes = Math.min((long) end * blockSize, size) - offset;
+            logger.log(Level.TRACE, "fetch: " + file.getFileName() + ", blocks: " + start + "-" + (end - 1));
+            try (InputStream in = fetcher.fetch(offset, bytes)) {
+                byte[] buf = new byte[Math.min(blockSize, 64 * 1024)];
+                long written = 0;
+                while (written < bytes) {
+                    int r = in.read(buf, 0, (int) Math.min(buf.length, bytes - written));
+                    if (r < 0) {
+                        throw new IOException("short range: " + file.getFileName() + ", " + offset + "+" + written + "/" + bytes);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(buf, 0, r);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, offset + written + buffer.position());
+                    }
+                    written += r;
+                }
+            }
+            synchronized (this) {
+                present.set(start, end);
+            }
+            onGrow.accept(cachedBytes());
+            block = end;
+        }
+    }
+
+    /** Downloads the range now, e.g. the head of the file. */
+    public void prefetch(long position, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            fill(channel, position, length);
+        }
+    }
+
+    /**
+     * Opens a channel reading through the local file.
+     *
+     * @param maxReadAhead max blocks downloaded ahead while reading sequentially
+     * @param onClose called when the channel is closed
+     */
+    public SeekableByteChannel newChannel(int maxReadAhead, Closeable onClose) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
+        return new SeekableByteChannel() {
+            /** */
+            long position;
+            /** where the last read ended, for detecting sequential reads */
+            long lastEnd = -1;
+            /** blocks downloaded ahead, doubled while reading sequentially */
+            int readAhead;
+            /** */
+            boolean closed;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                if (position >= size) {
+                    return -1;
+                }
+                int length = (int) Math.min(dst.remaining(), size - position);
+                if (position == lastEnd) {
+                    readAhead = Math.min(Math.max(1, readAhead * 2), maxReadAhead);
+                } else {
+                    readAhead = 0;
+                }
+                fill(channel, position, length + (long) readAhead * blockSize);
+                ByteBuffer slice = dst.slice();
+                slice.limit(length);
+                int n = 0;
+                while (slice.hasRemaining()) {
+                    int r = channel.read(slice, position + n);
+                    if (r < 0) {
+                        break;
+                    }
+                    n += r;
+                }
+                dst.position(dst.position() + n);
+                position += n;
+                lastEnd = position;
+                return n;
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public SeekableByteChannel position(long newPosition) {
+                position = newPosition;
+                return this;
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public SeekableByteChannel truncate(long size) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return !closed;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    channel.close();
+                } finally {
+                    onClose.close();
+                }
+            }
+        };
+    }
+}
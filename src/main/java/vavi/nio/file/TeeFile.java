@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static java.lang.System.getLogger;
+
+
+/**
+ * TeeFile.
+ * <p>
+ * A local file written from a download in background and read while it's growing,
+ * readers block only on bytes not written yet.
+ * the file is complete only when the download reached the expected size.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class TeeFile {
+
+    private static final Logger logger = getLogger(TeeFile.class.getName());
+
+    /** */
+    private final Path file;
+
+    /** expected bytes */
+    private final long size;
+
+    /** shared by the writer and readers */
+    private FileChannel channel;
+
+    /** the writer and readers using the channel */
+    private int users;
+
+    /** bytes written so far */
+    private long written;
+
+    /** the writer finished */
+    private boolean done;
+
+    /** not null when the download failed */
+    private IOException failure;
+
+    /**
+     * @param file a local file, it must not exist
+     * @param size expected bytes
+     */
+    public TeeFile(Path file, long size) {
+        this.file = file;
+        this.size = size;
+    }
+
+    /** */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Starts writing the stream into the file.
+     *
+     * @param onDone called with true when the file is complete, false when it's partial,
+     *               the file is still readable by channels opened before while this is called
+     */
+    public void start(InputStream in, Executor executor, Consumer<Boolean> onDone) throws IOException {
+        synchronized (this) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            users = 1;
+        }
+        executor.execute(() -> {
+            IOException failure = null;
+            try (in) {
+                byte[] buf = new byte[64 * 1024];
+                int r;
+                while ((r = in.read(buf)) >= 0) {
+                    long position;
+                    synchronized (this) {
+                        position = written;
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(buf, 0, r);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + buffer.position());
+                    }
+                    synchronized (this) {
+                        written += r;
+                        notifyAll();
+                    }
+                }
+                if (written != size) {
+                    failure = new IOException("size mismatch: " + file.getFileName() + ", written: " + written + ", expected: " + size);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            }
+            synchronized (this) {
+                this.failure = failure;
+                done = true;
+                notifyAll();
+            }
+            if (failure != null) {
+                logger.log(Level.DEBUG, "tee failed: " + file.getFileName() + ", " + failure);
+            }
+            try {
+                onDone.accept(failure == null);
+            } finally {
+                release();
+            }
+        });
+    }
+
+    /** closes the channel when nobody uses it */
+    private synchronized void release() {
+        if (--users == 0) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.DEBUG, "close: " + e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the byte at the position is written.
+     *
+     * @return bytes readable from the position, -1 at the end
+     * @throws IOException the download failed before the position
+     */
+    private synchronized long await(long position) throws IOException {
+        while (position >= written && !done) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw (IOException) new InterruptedIOException("interrupted while downloading: " + file.getFileName()).initCause(e);
+            }
+        }
+        if (position < written) {
+            return written - position;
+        } else if (failure != null) {
+            throw new IOException("download failed: " + file.getFileName(), failure);
+        } else {
+            return -1;
+        }
+    }
+
+    /** Opens a channel reading the file while it's growing. */
+    public SeekableByteChannel newChannel() throws IOException {
+        synchronized (this) {
+            if (users == 0) {
+                throw new ClosedChannelException();
+            }
+            users++;
+        }
+        return new SeekableByteChannel() {
+            /** */
+            long position;
+            /** */
+            boolean closed;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                long available = await(position);
+                if (available < 0) {
+                    return -1;
+                }
+                ByteBuffer slice = dst.slice();
+                slice.limit((int) Math.min(slice.limit(), available));
+                int n = channel.read(slice, position);
+                if (n > 0) {
+                    dst.position(dst.position() + n);
+                    position += n;
+                }
+                return n;
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public SeekableByteChannel position(long newPosition) {
+                position = newPosition;
+                return this;
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public SeekableByteChannel truncate(long size) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return !closed;
+            }
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    release();
+                }
+            }
+        };
+    }
+}
@@ -25,14 +25,17 @@ import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -133,6 +136,73 @@ public interface Util {
         };
     }
 
+    /**
+     * a lazy version, a page is fetched when the iterator reaches it.
+     *
+     * @param pages closed when the stream is closed
+     * @param <E> a path or a path with something
+     * @see java.nio.file.Files#newDirectoryStream(Path, java.nio.file.DirectoryStream.Filter)
+     */
+    static <E> DirectoryStream<E> newDirectoryStream(Pages<E> pages, DirectoryStream.Filter<? super E> filter) {
+        return new DirectoryStream<>() {
+            private final AtomicBoolean alreadyOpen = new AtomicBoolean(false);
+            private volatile boolean closed;
+
+            @Override
+            public Iterator<E> iterator() {
+                // required by the contract
+                if (alreadyOpen.getAndSet(true)) {
+                    throw new IllegalStateException("already open");
+                }
+                return new Iterator<>() {
+                    private Iterator<E> page = Collections.emptyIterator();
+                    private E next;
+                    private boolean end;
+
+                    @Override
+                    public boolean hasNext() {
+                        try {
+                            while (next == null && !end && !closed) {
+                                if (page.hasNext()) {
+                                    E p = page.next();
+                                    if (filter == null || filter.accept(p)) {
+                                        next = p;
+                                    }
+                                } else {
+                                    List<E> list = pages.next();
+                                    if (list == null) {
+                                        end = true;
+                                    } else {
+                                        page = list.iterator();
+                                    }
+                                }
+                            }
+                        } catch (IOException e) {
+                            throw new DirectoryIteratorException(e);
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public E next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        E p = next;
+                        next = null;
+                        return p;
+                    }
+                };
+            }
+
+            @Override
+            public void close() throws IOException {
+                closed = true;
+                pages.close();
+            }
+        };
+    }
+
     /**
      * @see java.nio.file.Files#newByteChannel(Path, Set, java.nio.file.attribute.FileAttribute...)
      */
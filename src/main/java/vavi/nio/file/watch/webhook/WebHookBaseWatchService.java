@@ -65,6 +65,33 @@ public abstract class WebHookBaseWatchService<T> extends AbstractWatchService {
         this.listener = listener;
     }
 
+    /**
+     * Adds a listener called before ones set before, e.g. a cache invalidator,
+     * so that watch keys are signaled after the cache is invalidated.
+     *
+     * @see com.github.fge.filesystem.driver.CachedFileSystemDriver#getCacheInvalidator(java.nio.file.FileSystem)
+     */
+    public void addNotificationListener(BiConsumer<String, Kind<?>> listener) {
+        BiConsumer<String, Kind<?>> current = this.listener;
+        if (current == null) {
+            this.listener = listener;
+            return;
+        }
+        this.listener = (id, kind) -> {
+            accept(listener, id, kind); // a failure doesn't suppress the rest
+            accept(current, id, kind);
+        };
+    }
+
+    /** calls the listener, logs a failure */
+    private static void accept(BiConsumer<String, Kind<?>> listener, String id, Kind<?> kind) {
+        try {
+            listener.accept(id, kind);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "notification listener failed: " + id + ", " + kind, e);
+        }
+    }
+
     /** for watchkey */
     private void processNotification(String id, Kind<?> kind) {
         for (BasicWatchKey watchKey : watchKeys) {
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package com.github.fge.filesystem.driver;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.jupiter.api.Test;
+import vavi.nio.file.Cache.Freshness;
+import vavi.nio.file.LruEvictionPolicy;
+import vavi.nio.file.Pages;
+
+import static com.github.fge.filesystem.driver.CachedFileSystemDriver.ENV_CACHE_HARD_TTL;
+import static com.github.fge.filesystem.driver.CachedFileSystemDriver.ENV_CACHE_MAX_ENTRIES;
+import static com.github.fge.filesystem.driver.CachedFileSystemDriver.ENV_CACHE_NEGATIVE_TTL;
+import static com.github.fge.filesystem.driver.CachedFileSystemDriver.ENV_CACHE_SOFT_TTL;
+import static com.github.fge.filesystem.driver.CachedFileSystemDriver.ENV_CACHE_SPECULATIVE_DEPTH;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * CachedFileSystemDriverTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class CachedFileSystemDriverTest {
+
+    @Test
+    void test1() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_HARD_TTL, 100));
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        Path dir = Paths.get("/dir");
+        Path aaa = dir.resolve("aaa");
+        driver.getDirectoryEntries(dir, true);
+        assertEquals(1, driver.getEntry(aaa).size);
+
+        // the entry expired while the list of the parent is fresh
+        driver.put("/dir/aaa", false, 2);
+        Thread.sleep(150);
+        driver.cache.markFolderRevalidated(dir);
+        assertEquals(2, driver.getEntry(aaa).size);
+
+        // by lookup
+        driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_HARD_TTL, 100));
+        driver.lookupChild = true;
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.getDirectoryEntries(dir, true);
+        driver.put("/dir/aaa", false, 3);
+        Thread.sleep(150);
+        driver.cache.markFolderRevalidated(dir);
+        assertEquals(3, driver.getEntry(aaa).size);
+        assertTrue(driver.calls("lookup") > 0);
+    }
+
+    @Test
+    void test2() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_SOFT_TTL, 100));
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        Path dir = Paths.get("/dir");
+        Path aaa = dir.resolve("aaa");
+        driver.getDirectoryEntries(dir, true);
+        assertEquals(1, driver.getEntry(aaa).size);
+
+        // a stale entry is refreshed by the remote in background
+        driver.put("/dir/aaa", false, 2);
+        Thread.sleep(150);
+        driver.cache.markFolderRevalidated(dir);
+        assertEquals(1, driver.getEntry(aaa).size);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (driver.cache.getFile(aaa).size != 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, driver.cache.getFile(aaa).size);
+    }
+
+    @Test
+    void test3() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/dir/bbb", false, 2);
+        Path dir = Paths.get("/dir");
+        driver.getEntry(dir);
+        int lists = driver.calls("list");
+
+        // a stream joins the listing by another thread
+        driver.listGate = new CountDownLatch(1);
+        CompletableFuture<List<Path>> listing = CompletableFuture.supplyAsync(() -> {
+            try {
+                return driver.getDirectoryEntries(dir, false);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (driver.calls("list") == lists) {
+            Thread.sleep(10);
+        }
+        CompletableFuture<List<Path>> streaming = CompletableFuture.supplyAsync(() -> {
+            try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(dir)) {
+                List<Path> list = new ArrayList<>();
+                List<Map.Entry<Path, MemoryFileSystemDriver.Node>> page;
+                while ((page = pages.next()) != null) {
+                    page.forEach(e -> list.add(e.getKey()));
+                }
+                return list;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(streaming.isDone());
+        driver.listGate.countDown();
+        assertEquals(listing.get(5, TimeUnit.SECONDS), streaming.get(5, TimeUnit.SECONDS));
+        assertEquals(lists + 1, driver.calls("list"));
+
+        // a stream by itself is recorded as a load
+        driver.listGate = null;
+        driver.cache.invalidateFolder(dir);
+        long loads = driver.cache.getStats().getLoadCount();
+        try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(dir)) {
+            while (pages.next() != null) {
+                assertTrue(driver.cache.getStats().getLoadCount() > loads);
+            }
+        }
+        assertEquals(lists + 2, driver.calls("list"));
+    }
+
+    @Test
+    void test4() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/dir/sub", true, 0);
+        driver.put("/dir/sub/bbb", false, 2);
+        driver.put("/dir/sub/deep", true, 0);
+        driver.put("/etc", true, 0);
+        Path root = Paths.get("/");
+
+        // down to the depth
+        List<Path> progress = new ArrayList<>();
+        long listed = driver.prefetch(root, 3, 2, (dir, count) -> {
+            synchronized (progress) {
+                progress.add(dir);
+            }
+        });
+        assertEquals(4, listed);
+        assertEquals(4, progress.size());
+        assertTrue(driver.cache.containsFolder(Paths.get("/dir/sub")));
+        assertFalse(driver.cache.containsFolder(Paths.get("/dir/sub/deep")));
+        int lists = driver.calls("list");
+
+        // folders cached are not listed again
+        assertEquals(4, driver.prefetch(root, 3, 2));
+        assertEquals(lists, driver.calls("list"));
+    }
+
+    @Test
+    void test5() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_SPECULATIVE_DEPTH, 1));
+        Set<Path> touched = ConcurrentHashMap.newKeySet();
+        driver.cache.setEvictionPolicy(new LruEvictionPolicy<>(Long.MAX_VALUE, Long.MAX_VALUE) {
+            @Override
+            public synchronized void touch(Path key) {
+                touched.add(key);
+                super.touch(key);
+            }
+        });
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/dir/sub", true, 0);
+        driver.put("/dir/sub/deep", true, 0);
+        Path dir = Paths.get("/dir");
+        Path sub = dir.resolve("sub");
+
+        // sub folders are listed in background after a stream reached the end
+        try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(dir)) {
+            while (pages.next() != null) {
+            }
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!driver.cache.containsFolder(sub) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(driver.cache.containsFolder(sub));
+        Thread.sleep(100);
+        assertFalse(driver.cache.containsFolder(sub.resolve("deep")));
+
+        // looking ahead is not a use
+        assertFalse(touched.contains(dir.resolve("aaa")), touched.toString());
+
+        // the next stream is served by the speculation
+        int lists = driver.calls("list");
+        List<Path> list = new ArrayList<>();
+        try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(sub)) {
+            List<Map.Entry<Path, MemoryFileSystemDriver.Node>> page;
+            while ((page = pages.next()) != null) {
+                page.forEach(e -> list.add(e.getKey()));
+            }
+        }
+        assertEquals(List.of(sub.resolve("deep")), list);
+        assertEquals(lists, driver.calls("list"));
+    }
+
+    @Test
+    void test6() throws Exception {
+        FileSystem fs = FileSystems.getDefault();
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_NEGATIVE_TTL, 60000));
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/etc", true, 0);
+        Path dir = Paths.get("/dir");
+        Path etc = Paths.get("/etc");
+        Path bbb = dir.resolve("bbb");
+        driver.getDirectoryEntries(dir, true);
+        driver.getDirectoryEntries(etc, true);
+        assertThrows(NoSuchFileException.class, () -> driver.getEntry(bbb));
+        BiConsumer<String, WatchEvent.Kind<?>> invalidator = driver.getCacheInvalidator(fs);
+
+        // created by an id not cached, the parent is not resolved
+        MemoryFileSystemDriver.Node node = driver.put("/dir/bbb", false, 2);
+        invalidator.accept(node.id, ENTRY_CREATE);
+        assertEquals(Freshness.EXPIRED, driver.cache.getFolderFreshness(etc));
+        assertEquals(2, driver.getEntry(bbb).size);
+        assertTrue(driver.getDirectoryEntries(dir, true).contains(bbb));
+
+        // the parent is resolved
+        driver.resolveParent = true;
+        driver.getDirectoryEntries(etc, false);
+        Path ccc = dir.resolve("ccc");
+        assertThrows(NoSuchFileException.class, () -> driver.getEntry(ccc));
+        node = driver.put("/dir/ccc", false, 3);
+        invalidator.accept(node.id, ENTRY_CREATE);
+        assertEquals(1, driver.calls("parent"));
+        assertEquals(Freshness.FRESH, driver.cache.getFolderFreshness(etc));
+        assertEquals(3, driver.getEntry(ccc).size);
+        assertTrue(driver.getDirectoryEntries(dir, true).contains(ccc));
+    }
+
+    @Test
+    void test7() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_MAX_ENTRIES, 50, ENV_CACHE_NEGATIVE_TTL, 60000));
+        driver.put("/dir", true, 0);
+        for (int i = 0; i < 100; i++) {
+            driver.put("/dir/f" + i, false, i);
+        }
+        Path dir = Paths.get("/dir");
+
+        // children evicted while listing are still found
+        assertEquals(0, driver.getEntry(dir.resolve("f0")).size);
+        assertEquals(99, driver.getEntry(dir.resolve("f99")).size);
+        assertEquals(0, driver.getEntry(dir.resolve("f0")).size);
+        assertThrows(NoSuchFileException.class, () -> driver.getEntry(dir.resolve("zzz")));
+
+        // a list never refers an evicted entry
+        assertEquals(100, driver.getDirectoryEntries(dir, true).size());
+        List<Path> list = driver.cache.getFolder(dir);
+        if (list != null) {
+            for (Path child : list) {
+                assertTrue(driver.cache.containsFile(child), child.toString());
+            }
+        }
+    }
+
+    @Test
+    void test8() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of(ENV_CACHE_HARD_TTL, 100));
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        Path dir = Paths.get("/dir");
+        driver.getDirectoryEntries(dir, true);
+        int lists = driver.calls("list");
+
+        // a fresh list is served by the cache
+        driver.put("/dir/bbb", false, 2);
+        try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(dir)) {
+            assertEquals(1, pages.next().size());
+        }
+        assertEquals(lists, driver.calls("list"));
+
+        // an expired one is not
+        Thread.sleep(150);
+        try (Pages<Map.Entry<Path, MemoryFileSystemDriver.Node>> pages = driver.getDirectoryEntryPages(dir)) {
+            assertEquals(2, pages.next().size());
+        }
+        assertTrue(driver.calls("list") > lists);
+    }
+}
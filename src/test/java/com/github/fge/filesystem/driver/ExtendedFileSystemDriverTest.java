@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package com.github.fge.filesystem.driver;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * ExtendedFileSystemDriverTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class ExtendedFileSystemDriverTest {
+
+    @Test
+    void test1() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/dir/bbb", false, 2);
+        driver.put("/dir/ccc", true, 0);
+        Path dir = Paths.get("/dir");
+        driver.getEntry(dir);
+        int lists = driver.calls("list");
+
+        // attributes come with the listing
+        List<Path> paths = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        try (DirectoryStream<Map.Entry<Path, BasicFileAttributes>> stream =
+                     driver.newDirectoryStream(dir, BasicFileAttributes.class, p -> !p.getFileName().toString().equals("bbb"))) {
+            for (Map.Entry<Path, BasicFileAttributes> e : stream) {
+                paths.add(e.getKey());
+                sizes.add(e.getValue().size());
+                assertEquals(e.getKey().endsWith("ccc"), e.getValue().isDirectory());
+            }
+        }
+        assertEquals(List.of(dir.resolve("aaa"), dir.resolve("ccc")), paths);
+        assertEquals(List.of(1L, 0L), sizes);
+        assertEquals(lists + 1, driver.calls("list"));
+        assertEquals(0, driver.calls("lookup"));
+
+        // without a filter
+        try (DirectoryStream<Map.Entry<Path, BasicFileAttributes>> stream = driver.newDirectoryStream(dir, BasicFileAttributes.class, null)) {
+            int count = 0;
+            for (Map.Entry<Path, BasicFileAttributes> e : stream) {
+                count++;
+            }
+            assertEquals(3, count);
+        }
+    }
+
+    @Test
+    void test2() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+        driver.put("/dir/bbb", false, 2);
+        driver.put("/etc", true, 0);
+        driver.put("/etc/ccc", false, 3);
+        driver.getEntry(Paths.get("/"));
+        int lists = driver.calls("list");
+
+        // one listing for each parent, null for a path not found
+        List<BasicFileAttributes> list = driver.readAttributes(List.of(
+                Paths.get("/dir/aaa"), Paths.get("/dir/bbb"), Paths.get("/dir/zzz"), Paths.get("/etc/ccc")), BasicFileAttributes.class);
+        assertEquals(4, list.size());
+        assertEquals(1, list.get(0).size());
+        assertEquals(2, list.get(1).size());
+        assertNull(list.get(2));
+        assertEquals(3, list.get(3).size());
+        assertEquals(lists + 3, driver.calls("list")); // "/", "/dir" and "/etc"
+    }
+
+    @Test
+    void test3() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/sub", true, 0);
+        driver.put("/dir/sub/aaa", false, 1);
+        driver.put("/dir/sub/bbb", false, 2);
+        driver.put("/dir/ccc", false, 3);
+        Path dir = Paths.get("/dir");
+        driver.getDirectoryEntries(dir.resolve("sub"), true);
+
+        // given parents first, children are deleted before them
+        driver.batch(List.of(
+                BatchOperation.delete(dir),
+                BatchOperation.delete(dir.resolve("sub")),
+                BatchOperation.delete(dir.resolve("sub/aaa")),
+                BatchOperation.delete(dir.resolve("sub/bbb")),
+                BatchOperation.delete(dir.resolve("ccc"))), 4);
+        assertEquals(5, driver.calls("remove"));
+        assertTrue(driver.root.children.isEmpty());
+
+        // the cache follows
+        assertFalse(driver.cache.containsFile(dir.resolve("sub/aaa")));
+        assertFalse(driver.cache.containsFile(dir));
+        assertFalse(driver.getDirectoryEntries(Paths.get("/"), true).contains(dir));
+        assertThrows(NoSuchFileException.class, () -> driver.getEntry(dir));
+    }
+
+    @Test
+    void test4() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/sub", true, 0);
+        driver.put("/dir/sub/aaa", false, 1);
+        driver.put("/dir/sub/bbb", false, 2);
+        driver.put("/dir/ccc", false, 3);
+        Path dir = Paths.get("/dir");
+        Path sub = dir.resolve("sub");
+        driver.getDirectoryEntries(sub, true);
+        driver.failing.add("aaa");
+
+        // a failure stops later levels, others of the level are committed
+        IOException e = assertThrows(IOException.class, () -> driver.batch(List.of(
+                BatchOperation.delete(sub.resolve("aaa")),
+                BatchOperation.delete(sub.resolve("bbb")),
+                BatchOperation.delete(dir.resolve("ccc")),
+                BatchOperation.delete(sub)), 4));
+        assertTrue(e.getMessage().contains("aaa"), e.getMessage());
+        assertEquals(2, driver.calls("remove"));
+        assertTrue(driver.find(dir.resolve("ccc")) != null);
+
+        // the cache follows the successful one only
+        int lists = driver.calls("list");
+        assertEquals(List.of(sub.resolve("aaa")), driver.getDirectoryEntries(sub, true));
+        assertEquals(lists, driver.calls("list"));
+        assertFalse(driver.cache.containsFile(sub.resolve("bbb")));
+        assertEquals(1, driver.getEntry(sub.resolve("aaa")).size);
+        assertEquals(3, driver.getEntry(dir.resolve("ccc")).size);
+    }
+
+    @Test
+    void test5() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/dir", true, 0);
+        driver.put("/dir/aaa", false, 1);
+
+        // a folder is copied as an empty folder
+        driver.copy(Paths.get("/dir"), Paths.get("/dir2"), Set.of());
+        assertTrue(driver.find(Paths.get("/dir2")).folder);
+        assertTrue(driver.find(Paths.get("/dir2")).children.isEmpty());
+        assertEquals(0, driver.calls("copy"));
+        assertEquals(1, driver.calls("mkdir"));
+        assertTrue(driver.getDirectoryEntries(Paths.get("/dir2"), true).isEmpty());
+    }
+
+    @Test
+    void test6() throws Exception {
+        MemoryFileSystemDriver driver = new MemoryFileSystemDriver(Map.of());
+        driver.put("/src", true, 0);
+        driver.put("/src/aaa", false, 1);
+        driver.put("/src/sub", true, 0);
+        driver.put("/src/sub/bbb", false, 2);
+        driver.put("/src/sub/deep", true, 0);
+        driver.put("/src/sub/deep/ccc", false, 3);
+        Path source = Paths.get("/src");
+        Path target = Paths.get("/dst");
+
+        // a nested tree
+        driver.copyTree(source, target, Set.of(), 2, 0);
+        assertEquals(3, driver.calls("mkdir"));
+        assertEquals(3, driver.calls("copy"));
+        assertEquals(1, driver.find(target.resolve("aaa")).size);
+        assertEquals(2, driver.find(target.resolve("sub/bbb")).size);
+        assertEquals(3, driver.find(target.resolve("sub/deep/ccc")).size);
+        assertEquals(Set.of(target.resolve("sub/bbb"), target.resolve("sub/deep")),
+                Set.copyOf(driver.getDirectoryEntries(target.resolve("sub"), true)));
+        assertEquals(3, driver.getEntry(target.resolve("sub/deep/ccc")).size);
+
+        // an existing target
+        assertThrows(FileAlreadyExistsException.class, () -> driver.copyTree(source, target, Set.of(), 2, 0));
+        assertEquals(3, driver.calls("mkdir"));
+        assertEquals(3, driver.calls("copy"));
+
+        // a target in the source
+        IOException e = assertThrows(IOException.class, () -> driver.copyTree(source, source.resolve("sub/copy"), Set.of(), 2, 0));
+        assertFalse(e instanceof FileAlreadyExistsException);
+        assertEquals(3, driver.calls("mkdir"));
+        assertThrows(NoSuchFileException.class, () -> driver.find(source.resolve("sub/copy")));
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package com.github.fge.filesystem.driver;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.fge.filesystem.attributes.provider.BasicFileAttributesProvider;
+import com.github.fge.filesystem.provider.FileSystemFactoryProvider;
+
+
+/**
+ * MemoryFileSystemDriver.
+ * <p>
+ * A driver on an in-memory tree for tests, remote calls are counted by kinds.
+ * paths are of the default file system.
+ * </p>
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+public class MemoryFileSystemDriver extends CachedFileSystemDriver<MemoryFileSystemDriver.Node> {
+
+    /** a remote entry, a moved or renamed entry is a new node with the same id */
+    public static final class Node {
+        private static final AtomicInteger ids = new AtomicInteger();
+        final String id;
+        final String name;
+        final boolean folder;
+        final long size;
+        /** shared with the node moved */
+        final Map<String, Node> children;
+
+        Node(String name, boolean folder, long size) {
+            this(String.valueOf(ids.incrementAndGet()), name, folder, size, new LinkedHashMap<>());
+        }
+
+        private Node(String id, String name, boolean folder, long size, Map<String, Node> children) {
+            this.id = id;
+            this.name = name;
+            this.folder = folder;
+            this.size = size;
+            this.children = children;
+        }
+
+        /** */
+        Node rename(String name) {
+            return new Node(id, name, folder, size, children);
+        }
+
+        @Override
+        public String toString() {
+            return name + "#" + id;
+        }
+    }
+
+    /** */
+    public static class Attributes extends BasicFileAttributesProvider {
+
+        private final Node node;
+
+        public Attributes(Node node) throws IOException {
+            this.node = node;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return !node.folder;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return node.folder;
+        }
+
+        @Override
+        public long size() {
+            return node.size;
+        }
+    }
+
+    /** */
+    private static final FileSystemFactoryProvider factoryProvider = new FileSystemFactoryProvider() {{
+        setAttributesFactory(new ExtendedFileAttributesFactory() {{
+            setMetadataClass(Node.class);
+            addImplementation("basic", Attributes.class);
+        }});
+    }};
+
+    /** the remote tree */
+    final Node root = new Node("", true, 0);
+
+    /** <kind, count> of remote calls */
+    final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    /** names failing to be removed or copied */
+    final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+    /** listings wait for this when it's set */
+    volatile CountDownLatch listGate;
+
+    /** {@link #lookupChild(Node, Path)} is supported or not */
+    volatile boolean lookupChild;
+
+    /** {@link #resolveParent(String)} is supported or not */
+    volatile boolean resolveParent;
+
+    /** */
+    public MemoryFileSystemDriver(Map<String, ?> env) throws IOException {
+        super(Files.getFileStore(Paths.get(System.getProperty("java.io.tmpdir"))), factoryProvider);
+        setEnv(env);
+        cache.setKeyExtractor(node -> node.id);
+    }
+
+    /** */
+    int calls(String kind) {
+        AtomicInteger count = calls.get(kind);
+        return count != null ? count.get() : 0;
+    }
+
+    /** */
+    private void call(String kind) {
+        calls.computeIfAbsent(kind, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /** finds a remote node */
+    synchronized Node find(Path path) throws IOException {
+        Node node = root;
+        for (Path name : path.toAbsolutePath()) {
+            node = node.children.get(name.toString());
+            if (node == null) {
+                throw new NoSuchFileException(path.toString());
+            }
+        }
+        return node;
+    }
+
+    /** adds or replaces a remote node behind the cache */
+    synchronized Node put(String path, boolean folder, long size) throws IOException {
+        Path p = Paths.get(path);
+        Node node = new Node(p.getFileName().toString(), folder, size);
+        find(p.getParent()).children.put(node.name, node);
+        return node;
+    }
+
+    /** removes a remote node behind the cache */
+    synchronized void delete(String path) throws IOException {
+        Path p = Paths.get(path);
+        find(p.getParent()).children.remove(p.getFileName().toString());
+    }
+
+    /** finds the parent of a remote node by the id */
+    private static Node parentOf(Node folder, String id) {
+        for (Node child : folder.children.values()) {
+            if (child.id.equals(id)) {
+                return folder;
+            }
+            Node parent = parentOf(child, id);
+            if (parent != null) {
+                return parent;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected synchronized Object resolveParent(String id) {
+        if (!resolveParent) {
+            return null;
+        }
+        call("parent");
+        Node parent = parentOf(root, id);
+        return parent != null ? parent.id : null;
+    }
+
+    @Override
+    protected String getFilenameString(Node entry) {
+        return entry.name;
+    }
+
+    @Override
+    protected boolean isFolder(Node entry) {
+        return entry.folder;
+    }
+
+    @Override
+    protected Node getRootEntry(Path root) {
+        call("root");
+        return this.root;
+    }
+
+    @Override
+    protected Node lookupChild(Node parentEntry, Path path) throws IOException {
+        if (!lookupChild) {
+            throw new UnsupportedOperationException("lookupChild");
+        }
+        call("lookup");
+        synchronized (this) {
+            return find(path.toAbsolutePath().getParent()).children.get(path.getFileName().toString());
+        }
+    }
+
+    @Override
+    protected List<Node> getDirectoryEntries(Node dirEntry, Path dir) throws IOException {
+        call("list");
+        CountDownLatch gate = listGate;
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+        synchronized (this) {
+            return new ArrayList<>(find(dir).children.values());
+        }
+    }
+
+    @Override
+    protected InputStream downloadEntry(Node entry, Path path, Set<? extends OpenOption> options) {
+        call("download");
+        return new ByteArrayInputStream(new byte[(int) entry.size]);
+    }
+
+    @Override
+    protected OutputStream uploadEntry(Node parentEntry, Path path, Set<? extends OpenOption> options) {
+        throw new UnsupportedOperationException("upload");
+    }
+
+    @Override
+    protected synchronized Node createDirectoryEntry(Node parentEntry, Path dir) throws IOException {
+        call("mkdir");
+        return put(dir.toString(), true, 0);
+    }
+
+    @Override
+    protected synchronized boolean hasChildren(Node dirEntry, Path dir) throws IOException {
+        return !find(dir).children.isEmpty();
+    }
+
+    @Override
+    protected synchronized void removeEntry(Node entry, Path path) throws IOException {
+        call("remove");
+        if (failing.contains(entry.name)) {
+            throw new IOException("failing: " + path);
+        }
+        delete(path.toString());
+    }
+
+    @Override
+    protected synchronized Node copyEntry(Node sourceEntry, Node targetParentEntry, Path source, Path target, Set<CopyOption> options) throws IOException {
+        call("copy");
+        if (failing.contains(sourceEntry.name)) {
+            throw new IOException("failing: " + source);
+        }
+        return put(target.toString(), false, sourceEntry.size);
+    }
+
+    @Override
+    protected synchronized Node moveEntry(Node sourceEntry, Node targetParentEntry, Path source, Path target, boolean targetIsParent) throws IOException {
+        call("move");
+        Node moved = find(source).rename(targetIsParent ? source.getFileName().toString() : target.getFileName().toString());
+        delete(source.toString());
+        targetParentEntry.children.put(moved.name, moved); // target is the source when targetIsParent
+        return moved;
+    }
+
+    @Override
+    protected Node moveFolderEntry(Node sourceEntry, Node targetParentEntry, Path source, Path target, boolean targetIsParent) throws IOException {
+        return moveEntry(sourceEntry, targetParentEntry, source, target, targetIsParent);
+    }
+
+    @Override
+    protected Node renameEntry(Node sourceEntry, Node targetParentEntry, Path source, Path target) throws IOException {
+        return moveEntry(sourceEntry, targetParentEntry, source, target, false);
+    }
+}
@@ -7,14 +7,23 @@
 package vavi.nio.file;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -56,4 +65,227 @@ class CacheTest {
         cache.addEntry(dir.resolve("bbb"), "bbb");
         assertEquals(3, cache.getFolderCache().get(dir).size());
     }
+
+    @Test
+    void test2() {
+        HackedCache cache = new HackedCache();
+        cache.setEvictionPolicy(new LruEvictionPolicy<>(2, -1));
+        Path dir = Paths.get("/aaa");
+        cache.putFolder(dir, List.of(dir.resolve("bbb"), dir.resolve("ccc")));
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.addEntry(dir.resolve("ccc"), "ccc");
+        cache.getFile(dir.resolve("bbb"));
+        cache.addEntry(dir.resolve("ddd"), "ddd");
+        assertEquals(2, cache.getEntryCache().size());
+        assertFalse(cache.containsFile(dir.resolve("ccc")));
+        assertTrue(cache.containsFile(dir.resolve("bbb")));
+        assertNull(cache.getFolder(dir)); // the listing refers the evicted entry
+        assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    void test3() throws Exception {
+        HackedCache cache = new HackedCache();
+        cache.setExpiry(100, 300);
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.putFolder(dir, List.of(dir.resolve("bbb")));
+        assertEquals(Cache.Freshness.FRESH, cache.getFileFreshness(dir.resolve("bbb")));
+        Thread.sleep(150);
+        assertEquals(Cache.Freshness.STALE, cache.getFileFreshness(dir.resolve("bbb")));
+        assertEquals(Cache.Freshness.STALE, cache.getFolderFreshness(dir));
+        Thread.sleep(200);
+        assertEquals(Cache.Freshness.EXPIRED, cache.getFileFreshness(dir.resolve("bbb")));
+        cache.putFile(dir.resolve("bbb"), "bbb");
+        assertEquals(Cache.Freshness.FRESH, cache.getFileFreshness(dir.resolve("bbb")));
+    }
+
+    @Test
+    void test4() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.addEntry(dir.resolve("bbb/ccc"), "ccc");
+        cache.addEntry(dir.resolve("bbb/ccc/ddd"), "ddd");
+        Path target = Paths.get("/xxx/bbb");
+        cache.moveEntry(dir.resolve("bbb"), target, "bbb2");
+        assertEquals("bbb2", cache.getFile(target));
+        assertEquals("ddd", cache.getFile(target.resolve("ccc/ddd")));
+        assertEquals(List.of(target.resolve("ccc/ddd")), cache.getFolder(target.resolve("ccc")));
+        assertFalse(cache.containsFile(dir.resolve("bbb/ccc/ddd")));
+        assertEquals(0, cache.getChildCount(dir));
+        assertEquals(3, cache.getEntryCache().size());
+        cache.invalidateTree(target.resolve("ccc"));
+        assertEquals(1, cache.getEntryCache().size());
+        assertEquals(List.of(target.resolve("ccc")), cache.getFolder(target));
+    }
+
+    @Test
+    void test5() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir.resolve("bbb"), "id1:bbb");
+        cache.setKeyExtractor(e -> e.split(":")[0]);
+        cache.addEntry(dir.resolve("bbb/ccc"), "id2:ccc");
+        assertEquals(dir.resolve("bbb"), cache.getEntryByKey("id1"));
+        assertEquals(dir.resolve("bbb/ccc"), cache.getEntry("id2:ccc"));
+        Path target = Paths.get("/xxx");
+        cache.moveEntry(dir.resolve("bbb"), target, "id1:xxx");
+        assertEquals(target, cache.getEntryByKey("id1"));
+        assertEquals(target.resolve("ccc"), cache.getEntryByKey("id2"));
+        cache.removeEntry(target.resolve("ccc"));
+        assertThrows(NoSuchElementException.class, () -> cache.getEntryByKey("id2"));
+    }
+
+    @Test
+    void test6() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        for (int i = 0; i < 10000; i++) {
+            cache.addEntry(dir.resolve("f" + i), "f" + i);
+        }
+        List<Path> snapshot = cache.getFolder(dir);
+        cache.removeEntry(dir.resolve("f0"));
+        cache.addEntry(dir.resolve("f0"), "f0");
+        assertEquals(10000, snapshot.size());
+        assertEquals(dir.resolve("f0"), snapshot.get(0));
+        assertEquals(dir.resolve("f1"), cache.getFolder(dir).get(0));
+        assertEquals(dir.resolve("f0"), cache.getFolder(dir).get(9999));
+    }
+
+    @Test
+    void test7() {
+        HackedCache cache = new HackedCache();
+        cache.setNegativeCache(10, 10000);
+        Path dir = Paths.get("/aaa");
+        cache.putMissing(dir.resolve(".DS_Store"));
+        assertTrue(cache.isKnownMissing(dir.resolve(".DS_Store")));
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        assertTrue(cache.isKnownMissing(dir.resolve(".DS_Store")));
+        assertEquals(2, cache.getStats().getNegativeHitCount());
+        cache.putFolder(dir, List.of(dir.resolve("bbb")));
+        assertFalse(cache.isKnownMissing(dir.resolve(".DS_Store")));
+        cache.putMissing(dir.resolve("ccc"));
+        cache.addEntry(dir.resolve("ccc"), "ccc");
+        assertFalse(cache.isKnownMissing(dir.resolve("ccc")));
+    }
+
+    @Test
+    void test8() throws Exception {
+        Cache.Codec<String> codec = new Cache.Codec<>() {
+            @Override public byte[] encode(String entry) {
+                return entry.getBytes(StandardCharsets.UTF_8);
+            }
+            @Override public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir, "aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.addEntry(dir.resolve("ccc"), "ccc");
+        Path file = Files.createTempFile("cache", ".snapshot");
+        try {
+            cache.save(file, codec);
+            HackedCache loaded = new HackedCache();
+            loaded.load(file, codec, FileSystems.getDefault());
+            assertEquals("bbb", loaded.getFile(dir.resolve("bbb")));
+            assertEquals(cache.getFolder(dir), loaded.getFolder(dir));
+            assertEquals(Cache.Freshness.STALE, loaded.getFileFreshness(dir.resolve("bbb")));
+            assertEquals(Cache.Freshness.STALE, loaded.getFolderFreshness(dir));
+            loaded.putFile(dir.resolve("bbb"), "bbb");
+            assertEquals(Cache.Freshness.FRESH, loaded.getFileFreshness(dir.resolve("bbb")));
+
+            // entries evicted while loading leave no loaded time
+            HackedCache bounded = new HackedCache();
+            bounded.setEvictionPolicy(new LruEvictionPolicy<>(-1, Cache.DEFAULT_ENTRY_WEIGHT)); // any entry is over it
+            bounded.load(file, codec, FileSystems.getDefault());
+            assertEquals(0, bounded.getEntryCount());
+            for (Path path : List.of(dir, dir.resolve("bbb"), dir.resolve("ccc"))) {
+                assertEquals(bounded.containsFile(path) ? Cache.Freshness.STALE : Cache.Freshness.FRESH, bounded.getFileFreshness(path));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void test9() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir, "aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.setBackend(new MapCacheBackend());
+        assertEquals("bbb", cache.getFile(dir.resolve("bbb")));
+        cache.addEntry(dir.resolve("bbb/ccc"), "ccc");
+        Path target = Paths.get("/xxx/bbb");
+        cache.moveEntry(dir.resolve("bbb"), target, "bbb");
+        assertEquals("ccc", cache.getFile(target.resolve("ccc")));
+        assertEquals(List.of(target.resolve("ccc")), cache.getFolder(target));
+        assertNull(cache.getFile(dir.resolve("bbb/ccc")));
+        assertFalse(cache.getFolder(dir).contains(dir.resolve("bbb")));
+        cache.invalidateTree(target);
+        assertNull(cache.getFile(target.resolve("ccc")));
+        assertEquals(1, cache.getEntryCache().size());
+    }
+
+    @Test
+    void test10() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.getStats().recordLoad(500_000, true);
+        cache.getStats().recordLoad(50_000_000, false);
+        cache.getStats().recordLoad(20_000_000_000L, true);
+        CacheMonitor monitor = new CacheMonitor(cache, () -> -1);
+        assertEquals(3, monitor.getLoadCount());
+        assertEquals(1, monitor.getLoadFailureCount());
+        assertEquals(List.of(1L, 0L, 1L, 0L, 0L, 1L), Arrays.stream(monitor.getLoadLatencyHistogram()).boxed().toList());
+        assertEquals(1, monitor.getEntryCount());
+        assertEquals(1, monitor.getFolderCount());
+        assertEquals(-1, monitor.getWeight());
+    }
+
+    @Test
+    void test11() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.addEntry(dir, "aaa");
+        cache.addEntry(dir.resolve("bbb"), "bbb");
+        cache.invalidateEntry(dir);
+        assertFalse(cache.containsFile(dir));
+        assertTrue(cache.containsFile(dir.resolve("bbb")));
+        assertEquals(1, cache.getChildCount(dir));
+        assertEquals(1, cache.getChildCount(dir.getParent()));
+    }
+
+    @Test
+    void test12() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        cache.setFolderVersion(dir, "v0");
+        assertNull(cache.getFolderVersion(dir)); // no list
+        cache.putFolder(dir, List.of(dir.resolve("bbb")));
+        cache.setFolderVersion(dir, "v1");
+        assertEquals("v1", cache.getFolderVersion(dir));
+        cache.putFolder(dir, List.of(dir.resolve("bbb"), dir.resolve("ccc")));
+        assertNull(cache.getFolderVersion(dir));
+        cache.setFolderVersion(dir, "v2");
+        cache.invalidateTree(dir);
+        assertNull(cache.getFolderVersion(dir));
+    }
+
+    @Test
+    void test13() {
+        HackedCache cache = new HackedCache();
+        Path dir = Paths.get("/aaa");
+        assertFalse(cache.containsChild(dir, dir.resolve("bbb"))); // no list
+        cache.putFolder(dir, List.of(dir.resolve("bbb"), dir.resolve("ccc")));
+        assertTrue(cache.containsChild(dir, dir.resolve("bbb")));
+        assertFalse(cache.containsChild(dir, dir.resolve("ddd")));
+        cache.removeEntry(dir.resolve("bbb"));
+        assertFalse(cache.containsChild(dir, dir.resolve("bbb")));
+        assertTrue(cache.containsChild(dir, dir.resolve("ccc")));
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * FileDataCacheTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class FileDataCacheTest {
+
+    /** */
+    private static SeekableByteChannel put(FileDataCache cache, String key, int size) throws Exception {
+        Files.write(cache.resolve(key), new byte[size]);
+        return cache.put(key);
+    }
+
+    @Test
+    void test1() throws Exception {
+        FileDataCache cache = new FileDataCache(Files.createTempDirectory("fdc"), new LruEvictionPolicy<>(-1, 100));
+        put(cache, "aaa", 40).close();
+        put(cache, "bbb", 40).close();
+        cache.open("aaa").close(); // bbb is the least recently used
+        put(cache, "ccc", 40).close();
+        assertTrue(cache.contains("aaa"));
+        assertFalse(cache.contains("bbb"));
+        assertFalse(Files.exists(cache.resolve("bbb")));
+        assertEquals(80, cache.size());
+
+        // evicted while reading
+        SeekableByteChannel channel = cache.open("aaa");
+        put(cache, "ddd", 90).close();
+        assertFalse(cache.contains("aaa"));
+        assertNull(cache.open("aaa"));
+        assertTrue(Files.exists(cache.resolve("aaa")));
+        assertEquals(40, channel.size());
+        channel.close();
+        assertFalse(Files.exists(cache.resolve("aaa")));
+        assertEquals(1, cache.count());
+    }
+
+    @Test
+    void test2() throws Exception {
+        FileDataCache cache = new FileDataCache(Files.createTempDirectory("fdc"), new LfuEvictionPolicy<>(-1, 100));
+        put(cache, "aaa", 40).close();
+        put(cache, "bbb", 40).close();
+        cache.open("aaa").close();
+        cache.open("aaa").close();
+        cache.open("bbb").close(); // aaa is the least recent but the most frequent
+        put(cache, "ccc", 40).close();
+        assertTrue(cache.contains("aaa"));
+        assertTrue(cache.contains("bbb"));
+        assertFalse(cache.contains("ccc"));
+
+        // larger than the bounds, readable once
+        Path root = cache.getRoot();
+        SeekableByteChannel channel = put(cache, "eee", 200);
+        assertNotNull(channel);
+        assertFalse(cache.contains("eee"));
+        assertEquals(200, channel.size());
+        channel.close();
+        assertFalse(Files.exists(root.resolve("eee")));
+    }
+
+    @Test
+    void test3() throws Exception {
+        FileDataCache cache = new FileDataCache(Files.createTempDirectory("fdc"), new LruEvictionPolicy<>(-1, 100));
+        put(cache, "aaa", 40).close();
+        assertFalse(cache.rename("zzz", "yyy"));
+
+        // renamed while reading
+        SeekableByteChannel channel = cache.open("aaa");
+        assertTrue(cache.rename("aaa", "bbb"));
+        assertFalse(cache.contains("aaa"));
+        assertTrue(cache.contains("bbb"));
+        assertEquals(40, channel.size());
+        channel.close();
+        assertTrue(Files.exists(cache.resolve("bbb")));
+        assertEquals(40, cache.size());
+        assertEquals(1, cache.count());
+    }
+
+    @Test
+    void test4() throws Exception {
+        Path root = Files.createTempDirectory("fdc");
+        FileDataCache cache = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100));
+        cache.openIndex();
+        put(cache, "aaa", 40).close();
+        put(cache, "bbb", 30).close();
+        put(cache, "ccc", 20).close();
+        cache.acquire("ddd.blocks").close(); // growing, not recovered
+        Files.write(root.resolve("ddd.blocks"), new byte[10]);
+        Files.write(root.resolve("eee.part"), new byte[10]); // not indexed
+        cache.open("aaa").close();
+        cache.remove("ccc");
+        cache.close();
+        Files.write(root.resolve("bbb"), new byte[31]); // changed outside
+
+        FileDataCache recovered = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100));
+        recovered.openIndex();
+        assertEquals(2, recovered.count());
+        assertEquals(70, recovered.size());
+        assertFalse(Files.exists(root.resolve("ddd.blocks")));
+        assertFalse(Files.exists(root.resolve("eee.part")));
+        SeekableByteChannel channel = recovered.open("aaa");
+        assertNotNull(channel);
+        assertEquals(40, channel.size());
+        channel.close();
+        assertNull(recovered.open("bbb"));
+        assertFalse(Files.exists(root.resolve("bbb")));
+
+        // crashed without closing, appended records are recovered
+        put(recovered, "fff", 50).close();
+        FileDataCache crashed = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100));
+        crashed.openIndex();
+        assertTrue(crashed.contains("aaa"));
+        assertTrue(crashed.contains("fff"));
+        assertEquals(90, crashed.size());
+    }
+
+    @Test
+    void test5() throws Exception {
+        Path root = Files.createTempDirectory("fdc");
+        Files.write(root.resolve("user.txt"), new byte[10]);
+        FileDataCache mistaken = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100));
+        assertThrows(IOException.class, mistaken::openIndex); // not a folder of the cache
+        assertTrue(Files.exists(root.resolve("user.txt")));
+
+        root = Files.createTempDirectory("fdc");
+        FileDataCache cache = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100), Pattern.compile("key\\d+(\\.part)?"));
+        cache.openIndex();
+        put(cache, "key1", 40).close();
+        cache.close();
+        Files.write(root.resolve("key2.part"), new byte[10]); // not indexed
+        Files.write(root.resolve("user.txt"), new byte[10]); // not a file of the cache
+
+        FileDataCache recovered = new FileDataCache(root, new LruEvictionPolicy<>(-1, 100), Pattern.compile("key\\d+(\\.part)?"));
+        recovered.openIndex();
+        assertTrue(recovered.contains("key1"));
+        assertFalse(Files.exists(root.resolve("key2.part")));
+        assertTrue(Files.exists(root.resolve("user.txt")));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * JournalTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class JournalTest {
+
+    @Test
+    void test1() throws Exception {
+        FileSystem fs = FileSystems.getDefault();
+        Path file = Files.createTempDirectory("journal").resolve("journal");
+        CountDownLatch release = new CountDownLatch(1);
+        Journal crashed = new Journal(file, record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        crashed.open(fs);
+        crashed.append(Journal.Kind.CREATE, fs.getPath("/aaa"), null, null);
+        crashed.append(Journal.Kind.RENAME, fs.getPath("/aaa"), fs.getPath("/bbb"), null);
+        crashed.append(Journal.Kind.DELETE, fs.getPath("/bbb"), null, null);
+        assertTrue(crashed.isPending(fs.getPath("/aaa/ccc")));
+
+        // records are recovered from the file as if the process crashed
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        Journal journal = new Journal(file, record -> replayed.add(record.toString()));
+        journal.open(fs);
+        journal.flush();
+        assertEquals(List.of("CREATE /aaa", "RENAME /aaa -> /bbb", "DELETE /bbb"), replayed);
+        assertEquals(0, journal.size());
+        journal.close();
+
+        release.countDown();
+        crashed.close();
+    }
+
+    @Test
+    void test2() throws Exception {
+        FileSystem fs = FileSystems.getDefault();
+        Path file = Files.createTempDirectory("journal").resolve("journal");
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> replayed = new CopyOnWriteArrayList<>();
+        Journal journal = new Journal(file, record -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            replayed.add(record.toString());
+        });
+        journal.open(fs);
+        assertTrue(journal.append(Journal.Kind.CREATE, fs.getPath("/xxx"), null, null));
+        assertTrue(journal.append(Journal.Kind.CREATE, fs.getPath("/aaa"), null, null));
+        assertTrue(journal.append(Journal.Kind.CREATE, fs.getPath("/aaa/bbb"), null, null));
+        // cancelled with creations
+        assertFalse(journal.append(Journal.Kind.DELETE, fs.getPath("/aaa/bbb"), null, null));
+        assertFalse(journal.append(Journal.Kind.DELETE, fs.getPath("/aaa"), null, null));
+        assertEquals(1, journal.size());
+        // renamed after the creation, not cancelled
+        assertTrue(journal.append(Journal.Kind.CREATE, fs.getPath("/ccc"), null, null));
+        assertTrue(journal.append(Journal.Kind.RENAME, fs.getPath("/ccc"), fs.getPath("/ddd"), null));
+        assertTrue(journal.append(Journal.Kind.DELETE, fs.getPath("/ccc"), null, null));
+        assertEquals(4, journal.size());
+
+        release.countDown();
+        journal.close();
+        assertEquals(List.of("CREATE /xxx", "CREATE /ccc", "RENAME /ccc -> /ddd", "DELETE /ccc"), replayed);
+        assertEquals(8, Files.size(file));
+    }
+}
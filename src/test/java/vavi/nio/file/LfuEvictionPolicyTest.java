@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * LfuEvictionPolicyTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class LfuEvictionPolicyTest {
+
+    @Test
+    void test1() throws Exception {
+        LfuEvictionPolicy<String> policy = new LfuEvictionPolicy<>(-1, 10);
+        policy.put("a", 1);
+        policy.put("b", 1);
+        policy.touch("b");
+        policy.touch("b");
+
+        // replacing is not a use
+        policy.put("a", 2);
+        policy.put("a", 3);
+        policy.put("a", 4);
+        assertEquals(5, policy.weight());
+        assertNull(policy.victim());
+        policy.put("a", 10);
+        assertEquals("a", policy.victim());
+        assertEquals(1, policy.weight());
+        assertNull(policy.victim());
+    }
+
+    @Test
+    void test2() throws Exception {
+        LfuEvictionPolicy<String> policy = new LfuEvictionPolicy<>(2, -1);
+        policy.put("a", 1);
+        policy.put("b", 1);
+        for (int i = 0; i < 1000; i++) {
+            policy.touch("a");
+        }
+
+        // uses in the past fade out
+        for (int i = 0; i < 100; i++) {
+            policy.touch("b");
+        }
+        policy.put("c", 1);
+        assertEquals("a", policy.victim());
+        assertNull(policy.victim());
+        assertEquals(2, policy.size());
+    }
+}
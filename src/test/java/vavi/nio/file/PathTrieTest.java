@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * PathTrieTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class PathTrieTest {
+
+    @Test
+    void test1() {
+        PathTrie trie = new PathTrie();
+        Map<Path, String> map1 = trie.newMap();
+        Map<Path, Integer> map2 = trie.newMap();
+        map1.put(Paths.get("/a/b/c"), "c");
+        map1.put(Paths.get("/a/b/d"), "d");
+        map1.put(Paths.get("/a/e"), "e");
+        map2.put(Paths.get("/a/b"), 1);
+        assertEquals(3, map1.size());
+        assertEquals(1, map2.size());
+        assertEquals("c", map1.get(Paths.get("/a/b/c")));
+        assertNull(map1.get(Paths.get("/a/b")));
+
+        trie.move(Paths.get("/a/b"), Paths.get("/x/y"));
+        assertEquals("d", map1.get(Paths.get("/x/y/d")));
+        assertEquals(1, (int) map2.get(Paths.get("/x/y")));
+        assertNull(map1.get(Paths.get("/a/b/d")));
+        assertEquals(3, map1.size());
+
+        Map<Path, String> expected = new HashMap<>();
+        expected.put(Paths.get("/x/y/c"), "c");
+        expected.put(Paths.get("/x/y/d"), "d");
+        expected.put(Paths.get("/a/e"), "e");
+        assertEquals(expected, new HashMap<>(map1));
+
+        trie.remove(Paths.get("/x"));
+        assertEquals(1, map1.size());
+        assertEquals(0, map2.size());
+
+        map1.remove(Paths.get("/a/e"));
+        assertEquals(0, map1.size());
+        assertEquals(0, map1.entrySet().size());
+    }
+
+    @Test
+    void test2() {
+        PathTrie trie = new PathTrie();
+        Map<Path, String> map = trie.newMap();
+        map.put(Paths.get("/a/b"), "b");
+        map.put(Paths.get("/c"), "c");
+        trie.move(Paths.get("/c"), Paths.get("/a/b"));
+        assertEquals(1, map.size());
+        assertEquals("c", map.get(Paths.get("/a/b")));
+        assertThrows(IllegalArgumentException.class, () -> trie.move(Paths.get("/a"), Paths.get("/a/b/z")));
+        assertThrows(IllegalArgumentException.class, () -> map.get(Paths.get("a")));
+    }
+}
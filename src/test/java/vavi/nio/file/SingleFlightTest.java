@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * SingleFlightTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class SingleFlightTest {
+
+    @Test
+    void test1() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> flight.execute("/aaa", () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return "aaa";
+                })));
+            }
+            started.await();
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("aaa", future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, flight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void test2() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertThrows(NoSuchFileException.class, () -> flight.execute("/aaa", () -> {
+            throw new NoSuchFileException("/aaa");
+        }));
+        // reentrant
+        assertEquals("bbb", flight.execute("/bbb", () -> flight.execute("/bbb", () -> "bbb")));
+        assertEquals(0, flight.size());
+    }
+
+    @Test
+    void test3() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertNull(flight.join("/aaa"));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> future = executor.submit(() -> flight.execute("/aaa", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "aaa";
+            }));
+            started.await();
+            executor.submit(() -> {
+                Thread.sleep(100);
+                release.countDown();
+                return null;
+            });
+            // waits for another thread without loading
+            assertEquals("aaa", flight.join("/aaa"));
+            assertEquals("aaa", future.get(10, TimeUnit.SECONDS));
+            // not for its own loading
+            assertNull(flight.execute("/bbb", () -> flight.join("/bbb")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
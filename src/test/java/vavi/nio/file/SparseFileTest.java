@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+
+/**
+ * SparseFileTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class SparseFileTest {
+
+    @Test
+    void test1() throws Exception {
+        byte[] remote = new byte[1000];
+        for (int i = 0; i < remote.length; i++) {
+            remote[i] = (byte) i;
+        }
+        List<String> fetches = new CopyOnWriteArrayList<>();
+        AtomicLong grown = new AtomicLong();
+        SparseFile sparse = new SparseFile(Files.createTempDirectory("sparse").resolve("aaa"), remote.length, 100, (offset, length) -> {
+            fetches.add(offset + "+" + length);
+            return new ByteArrayInputStream(remote, (int) offset, (int) length);
+        }, grown::set);
+
+        try (SeekableByteChannel channel = sparse.newChannel(4, () -> {})) {
+            // random access costs blocks touched
+            ByteBuffer buffer = ByteBuffer.allocate(10);
+            channel.position(550).read(buffer);
+            assertEquals((byte) 550, buffer.get(0));
+            assertEquals(List.of("500+100"), fetches);
+            assertEquals(100, grown.get());
+
+            // sequential reads download ahead
+            fetches.clear();
+            channel.position(0);
+            buffer = ByteBuffer.allocate(50);
+            for (int i = 0; i < 4; i++) {
+                buffer.clear();
+                channel.read(buffer);
+            }
+            assertEquals((byte) 199, buffer.get(49));
+            assertEquals(List.of("0+100", "100+100", "200+200", "400+100"), fetches);
+            assertFalse(sparse.isComplete());
+
+            // the last block is shorter
+            fetches.clear();
+            buffer = ByteBuffer.allocate(1000);
+            channel.position(900);
+            assertEquals(100, channel.read(buffer));
+            assertEquals(-1, channel.read(buffer));
+            assertEquals(List.of("900+100"), fetches);
+            assertEquals(700, sparse.cachedBytes());
+        }
+    }
+}
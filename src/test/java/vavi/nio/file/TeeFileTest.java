@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 by Naohide Sano, All rights reserved.
+ *
+ * Programmed by Naohide Sano
+ */
+
+package vavi.nio.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * TeeFileTest.
+ *
+ * @author <a href="mailto:umjammer@gmail.com">Naohide Sano</a> (nsano)
+ * @version 0.00 2026-10-16 nsano initial version <br>
+ */
+class TeeFileTest {
+
+    /** */
+    private static final Executor executor = r -> new Thread(r).start();
+
+    @Test
+    void test1() throws Exception {
+        PipedOutputStream remote = new PipedOutputStream();
+        InputStream in = new PipedInputStream(remote, 1000);
+        Path file = Files.createTempDirectory("tee").resolve("aaa.part");
+        TeeFile tee = new TeeFile(file, 200);
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        tee.start(in, executor, done::complete);
+        SeekableByteChannel channel = tee.newChannel();
+
+        // readable while downloading
+        remote.write(new byte[100]);
+        remote.flush();
+        ByteBuffer buffer = ByteBuffer.allocate(300);
+        while (buffer.position() < 100) {
+            channel.read(buffer);
+        }
+        assertEquals(100, buffer.position());
+        assertFalse(done.isDone());
+
+        // blocks on bytes not written yet
+        CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return channel.read(ByteBuffer.allocate(300));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(read.isDone());
+        remote.write(new byte[100]);
+        remote.close();
+        assertTrue(read.get(5, TimeUnit.SECONDS) > 0);
+        assertTrue(done.get(5, TimeUnit.SECONDS));
+        channel.position(200);
+        assertEquals(-1, channel.read(buffer));
+        channel.close();
+    }
+
+    @Test
+    void test2() throws Exception {
+        byte[] remote = {1, 2, 3};
+        Path file = Files.createTempDirectory("tee").resolve("bbb.part");
+        TeeFile tee = new TeeFile(file, 10); // shorter than expected
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        Runnable[] writer = new Runnable[1];
+        tee.start(new ByteArrayInputStream(remote), r -> writer[0] = r, done::complete);
+        SeekableByteChannel channel = tee.newChannel(); // before the download ends
+        executor.execute(writer[0]);
+        assertFalse(done.get(5, TimeUnit.SECONDS));
+
+        // bytes written are readable, but never the end
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        while (buffer.position() < 3) {
+            channel.read(buffer);
+        }
+        assertArrayEquals(remote, Arrays.copyOf(buffer.array(), 3));
+        assertThrows(IOException.class, () -> channel.read(buffer));
+        channel.close();
+    }
+}
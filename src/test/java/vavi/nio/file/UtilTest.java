@@ -11,9 +11,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import vavi.util.Debug;
 import vavix.util.Checksum;
@@ -21,6 +25,7 @@ import vavix.util.Checksum;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 
 /**
@@ -72,4 +77,19 @@ class UtilTest {
         Files.copy(path, os);
         os.close();
     }
+
+    @Test
+    void test2() throws Exception {
+        Path dir = Paths.get("/aaa");
+        List<List<Path>> source = List.of(List.of(dir.resolve("b1"), dir.resolve("c1")), List.of(dir.resolve("b2")));
+        AtomicInteger fetched = new AtomicInteger();
+        Pages<Path> pages = () -> fetched.get() < source.size() ? source.get(fetched.getAndIncrement()) : null;
+        try (DirectoryStream<Path> ds = Util.newDirectoryStream(pages, p -> p.getFileName().toString().startsWith("b"))) {
+            Iterator<Path> i = ds.iterator();
+            assertEquals(dir.resolve("b1"), i.next());
+            assertEquals(1, fetched.get());
+            assertEquals(dir.resolve("b2"), i.next());
+            assertFalse(i.hasNext());
+        }
+    }
 }